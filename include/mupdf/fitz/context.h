@@ -118,6 +118,7 @@ struct fz_context_s
 	fz_store *store;
 	fz_glyph_cache *glyph_cache;
 	fz_document_handler_context *handler;
+	const int *scavenge_veto;
 };
 
 /*
@@ -211,6 +212,22 @@ void fz_set_user_context(fz_context *ctx, void *user);
 */
 void *fz_user_context(fz_context *ctx);
 
+/*
+	fz_set_scavenge_veto: Stop failed allocations from being retried
+	after evicting items from the store, while a flag is set.
+
+	An allocator that refuses allocations because of a budget of its
+	own, rather than for want of memory, sets the flag when it does
+	so. Emptying the store, which is shared with every other context,
+	could not help the allocation succeed.
+
+	veto: The flag, which must stay valid until it is replaced, or
+	NULL to always scavenge (the default). It is not copied on clones.
+
+	Does not throw exceptions.
+*/
+void fz_set_scavenge_veto(fz_context *ctx, const int *veto);
+
 /*
 	fz_aa_level: Get the number of bits of antialiasing we are
 	using. Between 0 and 8.
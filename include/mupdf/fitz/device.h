@@ -319,4 +319,19 @@ fz_device *fz_new_draw_device_with_bbox(fz_context *ctx, fz_pixmap *dest, const
 
 fz_device *fz_new_draw_device_type3(fz_context *ctx, fz_pixmap *dest);
 
+/*
+	fz_reset_draw_device: Retarget an idle draw device to a new pixmap.
+
+	The edge list and scale caches of the device are kept, which makes
+	reusing one device for a series of renders cheaper than creating a
+	new device for each. Render flags and errors left over from the
+	previous run are cleared; device hints are kept. Throws if the device is not a draw device or
+	still has clips or groups pending.
+
+	dest: New target pixmap for the draw device. As with
+	fz_new_draw_device, ownership of the pixmap remains with the
+	caller.
+*/
+void fz_reset_draw_device(fz_context *ctx, fz_device *dev, fz_pixmap *dest);
+
 #endif
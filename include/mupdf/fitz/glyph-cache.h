@@ -8,6 +8,7 @@
 #include "mupdf/fitz/path.h"
 #include "mupdf/fitz/pixmap.h"
 #include "mupdf/fitz/device.h"
+#include "mupdf/fitz/store.h"
 
 /*
  * Glyph cache
@@ -33,6 +34,15 @@ fz_pixmap *fz_render_stroked_glyph_pixmap(fz_context *ctx, fz_font*, int, fz_mat
 void fz_render_t3_glyph_direct(fz_context *ctx, fz_device *dev, fz_font *font, int gid, const fz_matrix *trm, void *gstate, int nestedDepth);
 void fz_prepare_t3_glyph(fz_context *ctx, fz_font *font, int gid, int nestedDepth);
 void fz_dump_glyph_cache_stats(fz_context *ctx);
+
+/*
+	fz_glyph_cache_statistics: Fill in the number and total size of the
+	glyphs in the cache, and the hits, misses and evictions since the
+	last reset, in the same form as the store statistics. The glyph
+	cache is not part of the store; drop is always NULL.
+*/
+void fz_glyph_cache_statistics(fz_context *ctx, fz_store_stats *stats);
+void fz_reset_glyph_cache_statistics(fz_context *ctx);
 float fz_subpixel_adjust(fz_context *ctx, fz_matrix *ctm, fz_matrix *subpix_ctm, unsigned char *qe, unsigned char *qf);
 
 #endif
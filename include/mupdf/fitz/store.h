@@ -95,6 +95,34 @@ struct fz_store_type_s
 	void (*print)(fz_context *ctx, fz_output *out, void *);
 };
 
+/*
+	The store keeps statistics for each kind of item it holds, telling
+	the kinds apart by the function that frees their values.
+
+	drop: The drop function of the values of this kind.
+
+	count, size: The number of items of this kind in the store, and
+	their total size (in bytes).
+
+	hits, misses: The number of lookups for this kind of item that
+	found one in the store, and that did not.
+
+	evictions: The number of items of this kind evicted from the store.
+*/
+typedef struct fz_store_stats_s fz_store_stats;
+
+struct fz_store_stats_s
+{
+	fz_store_drop_fn *drop;
+	int count;
+	unsigned int size;
+	int hits;
+	int misses;
+	int evictions;
+};
+
+enum { FZ_STORE_STATS_MAX = 32 };
+
 /*
 	fz_store_new_context: Create a new store inside the context
 
@@ -192,6 +220,45 @@ int fz_store_scavenge(fz_context *ctx, unsigned int size, int *phase);
 */
 int fz_shrink_store(fz_context *ctx, unsigned int percent);
 
+/*
+	fz_set_store_size: Change the maximum size of the store. If the
+	store is bigger than the new maximum, items are evicted until it
+	fits, as far as that can be done without evicting items that are
+	still in use.
+
+	max: The new maximum size (in bytes), or FZ_STORE_UNLIMITED.
+*/
+void fz_set_store_size(fz_context *ctx, unsigned int max);
+
+/*
+	fz_store_size: Return the maximum size of the store (in bytes), or
+	FZ_STORE_UNLIMITED.
+*/
+unsigned int fz_store_size(fz_context *ctx);
+
+/*
+	fz_store_usage: Return the total size (in bytes) of the objects
+	currently in the store.
+*/
+unsigned int fz_store_usage(fz_context *ctx);
+
+/*
+	fz_store_statistics: Copy the statistics for each kind of item that
+	has been in the store.
+
+	stats: Array to fill in, with room for max entries. There are never
+	more than FZ_STORE_STATS_MAX kinds.
+
+	Returns the number of entries filled in.
+*/
+int fz_store_statistics(fz_context *ctx, fz_store_stats *stats, int max);
+
+/*
+	fz_reset_store_statistics: Set the hit, miss and eviction counts of
+	every kind of item back to zero.
+*/
+void fz_reset_store_statistics(fz_context *ctx);
+
 /*
 	fz_print_store: Dump the contents of the store for debugging.
 */
@@ -80,6 +80,7 @@ struct pdf_pattern_s
 pdf_pattern *pdf_load_pattern(fz_context *ctx, pdf_document *doc, pdf_obj *obj);
 pdf_pattern *pdf_keep_pattern(fz_context *ctx, pdf_pattern *pat);
 void pdf_drop_pattern(fz_context *ctx, pdf_pattern *pat);
+void pdf_drop_pattern_imp(fz_context *ctx, fz_storable *pat);
 
 /*
  * XObject
@@ -107,6 +108,7 @@ pdf_xobject *pdf_load_xobject(fz_context *ctx, pdf_document *doc, pdf_obj *obj);
 pdf_obj *pdf_new_xobject(fz_context *ctx, pdf_document *doc, const fz_rect *bbox, const fz_matrix *mat);
 pdf_xobject *pdf_keep_xobject(fz_context *ctx, pdf_xobject *xobj);
 void pdf_drop_xobject(fz_context *ctx, pdf_xobject *xobj);
+void pdf_drop_xobject_imp(fz_context *ctx, fz_storable *xobj);
 void pdf_update_xobject_contents(fz_context *ctx, pdf_document *doc, pdf_xobject *form, fz_buffer *buffer);
 
 void pdf_update_appearance(fz_context *ctx, pdf_document *doc, pdf_annot *annot);
@@ -1305,8 +1305,9 @@ JNI_FN(MuPDFCore_searchPage)(JNIEnv * env, jobject thiz, jstring jtext)
 	return arr;
 }
 
-JNIEXPORT jobjectArray JNICALL
-JNI_FN(MuPDFCore_text)(JNIEnv * env, jobject thiz)
+/* The text of a page as an array of blocks of lines of spans of TextChar. */
+static jobjectArray
+page_text(JNIEnv *env, globals *glo, fz_page *page)
 {
 	jclass textCharClass;
 	jclass textSpanClass;
@@ -1319,10 +1320,7 @@ JNI_FN(MuPDFCore_text)(JNIEnv * env, jobject thiz)
 	fz_device *dev = NULL;
 	float zoom;
 	fz_matrix ctm;
-	globals *glo = get_globals(env, thiz);
 	fz_context *ctx = glo->ctx;
-	fz_document *doc = glo->doc;
-	page_cache *pc = &glo->pages[glo->current];
 
 	textCharClass = (*env)->FindClass(env, PACKAGENAME "/TextChar");
 	if (textCharClass == NULL) return NULL;
@@ -1348,7 +1346,7 @@ JNI_FN(MuPDFCore_text)(JNIEnv * env, jobject thiz)
 		sheet = fz_new_stext_sheet(ctx);
 		text = fz_new_stext_page(ctx);
 		dev = fz_new_stext_device(ctx, sheet, text);
-		fz_run_page(ctx, pc->page, dev, &ctm, NULL);
+		fz_run_page(ctx, page, dev, &ctm, NULL);
 		fz_drop_device(ctx, dev);
 		dev = NULL;
 
@@ -1427,6 +1425,54 @@ JNI_FN(MuPDFCore_text)(JNIEnv * env, jobject thiz)
 	return barr;
 }
 
+JNIEXPORT jobjectArray JNICALL
+JNI_FN(MuPDFCore_text)(JNIEnv * env, jobject thiz)
+{
+	globals *glo = get_globals(env, thiz);
+
+	return page_text(env, glo, glo->pages[glo->current].page);
+}
+
+/* The text of any page, without going through the page cache, so that
+ * reading pages in the background does not evict the pages on screen.
+ * A page that is cached anyway is used from the cache. */
+JNIEXPORT jobjectArray JNICALL
+JNI_FN(MuPDFCore_textForPageInternal)(JNIEnv * env, jobject thiz, int number)
+{
+	globals *glo = get_globals(env, thiz);
+	fz_context *ctx;
+	fz_page *page = NULL;
+	jobjectArray barr;
+	int i;
+
+	if (glo == NULL)
+		return NULL;
+	ctx = glo->ctx;
+
+	for (i = 0; i < NUM_CACHE; i++)
+	{
+		if (glo->pages[i].page != NULL && glo->pages[i].number == number)
+			return page_text(env, glo, glo->pages[i].page);
+	}
+
+	fz_try(ctx)
+	{
+		page = fz_load_page(ctx, glo->doc, number);
+	}
+	fz_catch(ctx)
+	{
+		/* A page that cannot be loaded has no text */
+		jclass textBlockClass = (*env)->FindClass(env, "[[[L" PACKAGENAME "/TextChar;");
+		LOGE("cannot load page %d for its text", number);
+		if (textBlockClass == NULL) return NULL;
+		return (*env)->NewObjectArray(env, 0, textBlockClass, NULL);
+	}
+
+	barr = page_text(env, glo, page);
+	fz_drop_page(ctx, page);
+	return barr;
+}
+
 JNIEXPORT jbyteArray JNICALL
 JNI_FN(MuPDFCore_textAsHtml)(JNIEnv * env, jobject thiz)
 {
@@ -2564,6 +2610,28 @@ JNI_FN(MuPDFCore_hasChangesInternal)(JNIEnv * env, jobject thiz)
 	return (idoc && pdf_has_unsaved_changes(ctx, idoc)) ? JNI_TRUE : JNI_FALSE;
 }
 
+JNIEXPORT void JNICALL
+JNI_FN(MuPDFCore_setStoreSizeInternal)(JNIEnv * env, jobject thiz, jlong size)
+{
+	globals *glo = get_globals(env, thiz);
+
+	if (glo == NULL)
+		return;
+
+	fz_set_store_size(glo->ctx, size > UINT_MAX ? UINT_MAX : (unsigned int)size);
+}
+
+JNIEXPORT jboolean JNICALL
+JNI_FN(MuPDFCore_shrinkStoreInternal)(JNIEnv * env, jobject thiz, jint percent)
+{
+	globals *glo = get_globals(env, thiz);
+
+	if (glo == NULL)
+		return JNI_FALSE;
+
+	return fz_shrink_store(glo->ctx, percent < 0 ? 0 : percent) ? JNI_TRUE : JNI_FALSE;
+}
+
 static char *tmp_path(char *path)
 {
 	int f;
@@ -445,6 +445,8 @@ public class MuPDFActivity extends Activity implements FilePicker.FilePickerSupp
 		if (core == null)
 			return;
 
+		core.startSearchIndex(this);
+
 		// Now create the UI.
 		// First create the document view
 		mDocView = new MuPDFReaderView(this) {
@@ -1362,6 +1364,31 @@ public class MuPDFActivity extends Activity implements FilePicker.FilePickerSupp
 		return super.onPrepareOptionsMenu(menu);
 	}
 
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+
+		// Cached resources can always be decoded again, so give them
+		// up first: some while we are still running, and all of them
+		// once we are in the background.
+		if (core == null)
+			return;
+		if (level >= TRIM_MEMORY_RUNNING_CRITICAL)
+			core.shrinkStore(0);
+		else if (level >= TRIM_MEMORY_RUNNING_LOW)
+			core.shrinkStore(50);
+		else
+			core.shrinkStore(75);
+	}
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+
+		if (core != null)
+			core.shrinkStore(0);
+	}
+
 	@Override
 	protected void onStart() {
 		if (core != null)
@@ -4,6 +4,7 @@ import android.graphics.Bitmap;
 import android.graphics.PointF;
 import android.graphics.RectF;
 
+import java.io.File;
 import java.util.ArrayList;
 
 public class MuPDFCore
@@ -35,6 +36,8 @@ public class MuPDFCore
 	private String file_format;
 	private boolean isUnencryptedPDF;
 	private final boolean wasOpenedFromBuffer;
+	private String fileName;
+	private SearchIndex searchIndex;
 
 	/* The native functions */
 	private static native boolean gprfSupportedInternal();
@@ -59,6 +62,7 @@ public class MuPDFCore
 			long cookiePtr);
 	private native RectF[] searchPage(String text);
 	private native TextChar[][][][] text();
+	private native TextChar[][][][] textForPageInternal(int page);
 	private native byte[] textAsHtml();
 	private native void addMarkupAnnotationInternal(PointF[] quadPoints, int type);
 	private native void addInkAnnotationInternal(PointF[][] arcs);
@@ -86,6 +90,8 @@ public class MuPDFCore
 	private native void stopAlertsInternal();
 	private native void destroying();
 	private native boolean hasChangesInternal();
+	private native void setStoreSizeInternal(long size);
+	private native boolean shrinkStoreInternal(int percent);
 	private native void saveInternal();
 	private native long createCookie();
 	private native void destroyCookie(long cookie);
@@ -133,6 +139,7 @@ public class MuPDFCore
 		file_format = fileFormatInternal();
 		isUnencryptedPDF = isUnencryptedPDFInternal();
 		wasOpenedFromBuffer = false;
+		fileName = filename;
 	}
 
 	public MuPDFCore(Context context, byte buffer[], String magic) throws Exception {
@@ -208,6 +215,8 @@ public class MuPDFCore
 	}
 
 	public synchronized void onDestroy() {
+		if (searchIndex != null)
+			searchIndex.stop();
 		destroying();
 		globals = 0;
 	}
@@ -284,6 +293,30 @@ public class MuPDFCore
 		return searchPage(text);
 	}
 
+	/* Start indexing the words on each page in the background. The index
+	 * is kept in the cache directory, so that the same document is only
+	 * indexed once; SearchTask uses it to skip pages. */
+	public synchronized void startSearchIndex(Context context) {
+		if (searchIndex != null || globals == 0)
+			return;
+		File dir = new File(context.getCacheDir(), "searchindex");
+		searchIndex = new SearchIndex(this, dir, fileName, fileBuffer);
+		searchIndex.start();
+	}
+
+	public synchronized SearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	/* The text of a page, or null once the document has been closed.
+	 * This leaves the page cache alone, so it can be used to read pages
+	 * in the background without evicting the pages being shown. */
+	public synchronized TextChar[][][][] pageText(int page) {
+		if (globals == 0)
+			return null;
+		return textForPageInternal(page);
+	}
+
 	public synchronized byte[] html(int page) {
 		gotoPage(page);
 		return textAsHtml();
@@ -366,6 +399,20 @@ public class MuPDFCore
 		saveInternal();
 	}
 
+	/* The store holds decoded fonts and images for reuse between pages.
+	 * It starts at 128MB; a size of 0 means unlimited. */
+	public synchronized void setStoreSize(long size) {
+		if (size < 0)
+			throw new IllegalArgumentException("store size must not be negative");
+		setStoreSizeInternal(size);
+	}
+
+	/* Evict cached resources until the store is down to the given
+	 * percentage of its current size. */
+	public synchronized boolean shrinkStore(int percent) {
+		return shrinkStoreInternal(percent);
+	}
+
 	public synchronized String startProof(int resolution) {
 		return startProofInternal(resolution);
 	}
@@ -0,0 +1,340 @@
+package com.artifex.mupdfdemo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/* An index from the words of a document to the pages they appear on.
+ * It is built a page at a time on a background thread and saved in the
+ * cache directory under a fingerprint of the document, so that it only
+ * has to be built once. The index is only used to rule pages out; the
+ * exact search still runs on every page it cannot rule out, including
+ * the pages that have not been indexed yet. */
+public class SearchIndex
+{
+	private static final int MAGIC = 0x4d555358;
+	private static final int VERSION = 1;
+	private static final int SAVE_INTERVAL = 32;
+	private static final int FINGERPRINT_BLOCK = 64 * 1024;
+
+	/* Pages with longer words than this are always searched. */
+	private static final int MAX_WORD = 1024;
+
+	private static class Postings
+	{
+		int pages[] = new int[2];
+		int len;
+
+		void add(int page) {
+			if (len > 0 && pages[len-1] == page)
+				return;
+			if (len == pages.length)
+				pages = Arrays.copyOf(pages, len * 2);
+			pages[len++] = page;
+		}
+	}
+
+	private final MuPDFCore mCore;
+	private final File mDir;
+	private final String mPath;
+	private final byte mBuffer[];
+	private final int mPageCount;
+
+	private final HashMap<String, Postings> mWords = new HashMap<String, Postings>();
+	private final BitSet mUnindexed = new BitSet();
+	private int mIndexedPages;
+	private File mFile;
+	private Thread mThread;
+	private volatile boolean mStopped;
+
+	/* One of path and buffer gives the contents of the document, to
+	 * fingerprint it. */
+	public SearchIndex(MuPDFCore core, File dir, String path, byte buffer[]) {
+		mCore = core;
+		mDir = dir;
+		mPath = path;
+		mBuffer = buffer;
+		mPageCount = core.countPages();
+	}
+
+	public synchronized void start() {
+		if (mThread != null)
+			return;
+		mThread = new Thread(new Runnable() {
+			public void run() {
+				build();
+			}
+		}, "SearchIndex");
+		mThread.setPriority(Thread.MIN_PRIORITY);
+		mThread.start();
+	}
+
+	public void stop() {
+		mStopped = true;
+	}
+
+	public synchronized int indexedPages() {
+		return mIndexedPages;
+	}
+
+	/* The pages that may contain text, as far as the index can tell. */
+	public synchronized BitSet candidatePages(String text) {
+		BitSet result = new BitSet(mPageCount);
+		String tokens[] = tokenize(text);
+
+		if (tokens.length == 0) {
+			result.set(0, mPageCount);
+			return result;
+		}
+
+		/* The search matches across whitespace, so the first word of the
+		 * text can be the end of a longer word, the last one the start of
+		 * a longer word, and a single word any part of a longer word. */
+		BitSet found = null;
+		for (int i = 0; i < tokens.length; i++) {
+			boolean first = (i == 0);
+			boolean last = (i == tokens.length - 1);
+			BitSet pages = new BitSet(mPageCount);
+			if (!first && !last) {
+				addPages(pages, mWords.get(tokens[i]));
+			} else {
+				for (Map.Entry<String, Postings> e : mWords.entrySet()) {
+					String word = e.getKey();
+					boolean match;
+					if (first && last)
+						match = word.contains(tokens[i]);
+					else if (first)
+						match = word.endsWith(tokens[i]);
+					else
+						match = word.startsWith(tokens[i]);
+					if (match)
+						addPages(pages, e.getValue());
+				}
+			}
+			if (found == null)
+				found = pages;
+			else
+				found.and(pages);
+		}
+
+		result.or(found);
+		result.or(mUnindexed);
+		result.set(mIndexedPages, mPageCount);
+		return result;
+	}
+
+	private static void addPages(BitSet pages, Postings postings) {
+		if (postings == null)
+			return;
+		for (int i = 0; i < postings.len; i++)
+			pages.set(postings.pages[i]);
+	}
+
+	private void build() {
+		try {
+			mFile = new File(mDir, fingerprint() + ".idx");
+			load();
+		} catch (Exception e) {
+			System.out.println("SearchIndex: " + e);
+			return;
+		}
+
+		int unsaved = 0;
+		while (!mStopped) {
+			int page = indexedPages();
+			if (page >= mPageCount)
+				break;
+			TextChar text[][][][] = mCore.pageText(page);
+			if (text == null)
+				break;
+			addPage(page, text);
+			if (++unsaved == SAVE_INTERVAL) {
+				save();
+				unsaved = 0;
+			}
+			/* Let the viewer have the core between pages. */
+			Thread.yield();
+		}
+		if (unsaved > 0)
+			save();
+	}
+
+	private synchronized void addPage(int page, TextChar text[][][][]) {
+		for (String word : words(text)) {
+			if (word.length() > MAX_WORD) {
+				mUnindexed.set(page);
+				continue;
+			}
+			Postings postings = mWords.get(word);
+			if (postings == null) {
+				postings = new Postings();
+				mWords.put(word, postings);
+			}
+			postings.add(page);
+		}
+		mIndexedPages = page + 1;
+	}
+
+	private synchronized void load() throws IOException {
+		if (!mFile.exists())
+			return;
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != mPageCount)
+				return;
+			int indexed = in.readInt();
+			int n = in.readInt();
+			for (int i = 0; i < n; i++)
+				mUnindexed.set(in.readInt());
+			n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				String word = in.readUTF();
+				Postings postings = new Postings();
+				postings.len = in.readInt();
+				postings.pages = new int[Math.max(postings.len, 2)];
+				for (int k = 0; k < postings.len; k++)
+					postings.pages[k] = in.readInt();
+				mWords.put(word, postings);
+			}
+			mIndexedPages = indexed;
+		} catch (IOException e) {
+			/* A damaged index is simply built again. */
+			mWords.clear();
+			mUnindexed.clear();
+			mIndexedPages = 0;
+		} finally {
+			in.close();
+		}
+	}
+
+	/* Write to a temporary file first, so that the index on disk is
+	 * always complete even if the process dies while saving. */
+	private synchronized void save() {
+		File tmp = new File(mDir, mFile.getName() + ".tmp");
+		try {
+			mDir.mkdirs();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(mPageCount);
+				out.writeInt(mIndexedPages);
+				out.writeInt(mUnindexed.cardinality());
+				for (int i = mUnindexed.nextSetBit(0); i >= 0; i = mUnindexed.nextSetBit(i + 1))
+					out.writeInt(i);
+				out.writeInt(mWords.size());
+				for (Map.Entry<String, Postings> e : mWords.entrySet()) {
+					Postings postings = e.getValue();
+					out.writeUTF(e.getKey());
+					out.writeInt(postings.len);
+					for (int k = 0; k < postings.len; k++)
+						out.writeInt(postings.pages[k]);
+				}
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(mFile))
+				throw new IOException("cannot rename " + tmp);
+		} catch (IOException e) {
+			System.out.println("SearchIndex: " + e);
+			tmp.delete();
+		}
+	}
+
+	/* A hash of the size and the first and last blocks of the document,
+	 * which is cheap to compute even for very large files. */
+	private String fingerprint() throws IOException, NoSuchAlgorithmException {
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		if (mBuffer != null) {
+			md.update(mBuffer);
+		} else {
+			RandomAccessFile file = new RandomAccessFile(mPath, "r");
+			try {
+				long length = file.length();
+				byte block[] = new byte[(int)Math.min(length, FINGERPRINT_BLOCK)];
+				for (int i = 0; i < 8; i++)
+					md.update((byte)(length >>> (i * 8)));
+				file.readFully(block);
+				md.update(block);
+				file.seek(length - block.length);
+				file.readFully(block);
+				md.update(block);
+			} finally {
+				file.close();
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest())
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+
+	/* Whitespace and case are treated as by the native text search. */
+	private static boolean isWhite(int c) {
+		return c == ' ' || c == '\r' || c == '\n' || c == '\t' || c == 0xA0 || c == 0x2028 || c == 0x2029;
+	}
+
+	private static char toLower(char c) {
+		if (c >= 'A' && c <= 'Z')
+			return (char)(c - 'A' + 'a');
+		return c;
+	}
+
+	private static String[] tokenize(String text) {
+		ArrayList<String> tokens = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++) {
+			if (i == text.length() || isWhite(text.charAt(i))) {
+				if (sb.length() > 0)
+					tokens.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(toLower(text.charAt(i)));
+			}
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+
+	/* The words on a page. The spans of a line run together, and lines
+	 * are separated, as in the text the native search looks at. */
+	private static ArrayList<String> words(TextChar text[][][][]) {
+		ArrayList<String> words = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (TextChar block[][][] : text) {
+			if (block == null)
+				continue;
+			for (TextChar line[][] : block) {
+				for (TextChar span[] : line) {
+					for (TextChar tc : span) {
+						if (isWhite(tc.c)) {
+							if (sb.length() > 0)
+								words.add(sb.toString());
+							sb.setLength(0);
+						} else {
+							sb.append(toLower(tc.c));
+						}
+					}
+				}
+				if (sb.length() > 0)
+					words.add(sb.toString());
+				sb.setLength(0);
+			}
+		}
+		return words;
+	}
+}
@@ -7,6 +7,8 @@ import android.content.DialogInterface;
 import android.graphics.RectF;
 import android.os.Handler;
 
+import java.util.BitSet;
+
 class ProgressDialogX extends ProgressDialog {
 	public ProgressDialogX(Context context) {
 		super(context);
@@ -71,8 +73,15 @@ public abstract class SearchTask {
 			@Override
 			protected SearchTaskResult doInBackground(Void... params) {
 				int index = startIndex;
+				SearchIndex searchIndex = mCore.getSearchIndex();
+				BitSet candidates = searchIndex != null ? searchIndex.candidatePages(text) : null;
 
 				while (0 <= index && index < mCore.countPages() && !isCancelled()) {
+					if (candidates != null && !candidates.get(index)) {
+						index += increment;
+						continue;
+					}
+
 					publishProgress(index);
 					RectF searchHits[] = mCore.searchPage(index, text);
 
@@ -11,19 +11,25 @@ public class PageCanvas extends java.awt.Canvas
 		int w = pixmap.getWidth();
 		int h = pixmap.getHeight();
 		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-		image.setRGB(0, 0, w, h, pixmap.getPixels(), 0, w);
+		int[] data = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		pixmap.getPixelsBuffer().get(data);
 		return image;
 	}
 
-	public static BufferedImage imageFromPageWithDevice(Page page, Matrix ctm) {
+	protected static PixmapPool pixmapPool = new PixmapPool(4);
+	protected static DrawDevice drawDevice;
+
+	public static synchronized BufferedImage imageFromPageWithDevice(Page page, Matrix ctm) {
 		Rect bbox = page.getBounds();
-		Pixmap pixmap = new Pixmap(ColorSpace.DeviceBGR, bbox);
+		Pixmap pixmap = pixmapPool.acquire(ColorSpace.DeviceBGR, (int)(bbox.x1 - bbox.x0), (int)(bbox.y1 - bbox.y0));
 		pixmap.clear(255);
-		DrawDevice dev = new DrawDevice(pixmap);
-		page.run(dev, new Matrix());
-		dev.destroy();
+		if (drawDevice == null)
+			drawDevice = new DrawDevice(pixmap);
+		else
+			drawDevice.reset(pixmap);
+		page.run(drawDevice, Matrix.Translate(-bbox.x0, -bbox.y0));
 		BufferedImage image = imageFromPixmap(pixmap);
-		pixmap.destroy();
+		pixmapPool.release(pixmap);
 		return image;
 	}
 
@@ -2,6 +2,10 @@ import com.artifex.mupdf.fitz.*;
 
 public class TraceDevice extends Device implements PathWalker, TextWalker
 {
+	public TraceDevice() {
+		setReuseArguments(true);
+	}
+
 	public String traceColor(ColorSpace cs, float color[], float alpha) {
 		String s = cs + " [";
 		int i;
@@ -0,0 +1,122 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.BatchedDevice;
+import com.artifex.mupdf.fitz.ColorSpace;
+import com.artifex.mupdf.fitz.Device;
+import com.artifex.mupdf.fitz.DisplayList;
+import com.artifex.mupdf.fitz.DisplayListDevice;
+import com.artifex.mupdf.fitz.Document;
+import com.artifex.mupdf.fitz.Font;
+import com.artifex.mupdf.fitz.Matrix;
+import com.artifex.mupdf.fitz.Page;
+import com.artifex.mupdf.fitz.Path;
+import com.artifex.mupdf.fitz.PathWalker;
+import com.artifex.mupdf.fitz.StrokeState;
+import com.artifex.mupdf.fitz.Text;
+import com.artifex.mupdf.fitz.TextWalker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// The cost of calling back into Java devices: a display list is replayed
+// into a device that walks every path and text object it is given, with
+// fresh arguments for each call, with reused arguments, and through a
+// BatchedDevice.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeviceBenchmark
+{
+	@Param({TestDocuments.TEXT, TestDocuments.VECTOR})
+	public String kind;
+
+	private Document doc;
+	private DisplayList list;
+	private Matrix ctm = new Matrix();
+
+	@Setup
+	public void setup() throws Exception {
+		doc = new Document(TestDocuments.path(kind));
+		Page page = doc.loadPage(0);
+		list = new DisplayList();
+		DisplayListDevice dev = new DisplayListDevice(list);
+		try {
+			page.run(dev, ctm);
+		} finally {
+			dev.destroy();
+			page.destroy();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		list.destroy();
+		doc.destroy();
+	}
+
+	static class CountingDevice extends Device implements PathWalker, TextWalker
+	{
+		int count;
+
+		public void fillPath(Path path, boolean evenOdd, Matrix ctm, ColorSpace cs, float color[], float alpha) {
+			path.walk(this);
+		}
+		public void strokePath(Path path, StrokeState stroke, Matrix ctm, ColorSpace cs, float color[], float alpha) {
+			path.walk(this);
+		}
+		public void fillText(Text text, Matrix ctm, ColorSpace cs, float color[], float alpha) {
+			text.walk(this);
+		}
+
+		public void moveTo(float x, float y) { count++; }
+		public void lineTo(float x, float y) { count++; }
+		public void curveTo(float cx1, float cy1, float cx2, float cy2, float ex, float ey) { count++; }
+		public void closePath() { count++; }
+
+		public void showGlyph(Font font, Matrix trm, int glyph, int unicode, boolean wmode) { count++; }
+	}
+
+	private int run(boolean reuse) {
+		CountingDevice dev = new CountingDevice();
+		try {
+			dev.setReuseArguments(reuse);
+			list.run(dev, ctm, null);
+			return dev.count;
+		} finally {
+			dev.destroy();
+		}
+	}
+
+	@Benchmark
+	public int javaDevice() {
+		return run(false);
+	}
+
+	@Benchmark
+	public int javaDeviceReuse() {
+		return run(true);
+	}
+
+	@Benchmark
+	public int batchedDevice() {
+		CountingDevice target = new CountingDevice();
+		BatchedDevice dev = new BatchedDevice(target);
+		try {
+			list.run(dev, ctm, null);
+			dev.flush();
+			return target.count;
+		} finally {
+			dev.destroy();
+			target.destroy();
+		}
+	}
+}
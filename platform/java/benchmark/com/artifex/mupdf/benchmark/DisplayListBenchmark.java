@@ -0,0 +1,85 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.ColorSpace;
+import com.artifex.mupdf.fitz.DisplayList;
+import com.artifex.mupdf.fitz.DisplayListDevice;
+import com.artifex.mupdf.fitz.Document;
+import com.artifex.mupdf.fitz.DrawDevice;
+import com.artifex.mupdf.fitz.Matrix;
+import com.artifex.mupdf.fitz.Page;
+import com.artifex.mupdf.fitz.Pixmap;
+import com.artifex.mupdf.fitz.Rect;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Recording a page into a display list, and replaying the list into a
+// pixmap at 150 dpi. The pixmap is reused, so the replay measures drawing
+// rather than allocation.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DisplayListBenchmark
+{
+	@Param({TestDocuments.TEXT, TestDocuments.VECTOR, TestDocuments.IMAGE})
+	public String kind;
+
+	private Document doc;
+	private Page page;
+	private DisplayList list;
+	private Pixmap pixmap;
+	private Matrix ctm;
+
+	@Setup
+	public void setup() throws Exception {
+		doc = new Document(TestDocuments.path(kind));
+		page = doc.loadPage(0);
+		list = record();
+		ctm = new Matrix(150 / 72f);
+		pixmap = new Pixmap(ColorSpace.DeviceRGB, page.getBounds().transform(ctm));
+	}
+
+	@TearDown
+	public void tearDown() {
+		pixmap.destroy();
+		list.destroy();
+		page.destroy();
+		doc.destroy();
+	}
+
+	private DisplayList record() {
+		DisplayList dl = new DisplayList();
+		DisplayListDevice dev = new DisplayListDevice(dl);
+		try {
+			page.run(dev, new Matrix());
+		} finally {
+			dev.destroy();
+		}
+		return dl;
+	}
+
+	@Benchmark
+	public void recordList() {
+		record().destroy();
+	}
+
+	@Benchmark
+	public void replayList() {
+		pixmap.clear(255);
+		DrawDevice dev = new DrawDevice(pixmap);
+		try {
+			list.run(dev, ctm, null);
+		} finally {
+			dev.destroy();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.Document;
+import com.artifex.mupdf.fitz.Page;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Opening documents and loading pages. Loading a page of the long
+// document also measures the page tree lookup.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DocumentBenchmark
+{
+	@Param({TestDocuments.TEXT, TestDocuments.IMAGE, TestDocuments.PAGES})
+	public String kind;
+
+	private String path;
+	private Document doc;
+	private int page;
+
+	@Setup
+	public void setup() throws Exception {
+		path = TestDocuments.path(kind);
+		doc = new Document(path);
+	}
+
+	@TearDown
+	public void tearDown() {
+		doc.destroy();
+	}
+
+	@Benchmark
+	public int open() {
+		Document d = new Document(path);
+		try {
+			return d.countPages();
+		} finally {
+			d.destroy();
+		}
+	}
+
+	@Benchmark
+	public Object loadPage() {
+		page = (page + 1) % doc.countPages();
+		Page p = doc.loadPage(page);
+		try {
+			return p.getBounds();
+		} finally {
+			p.destroy();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.Path;
+import com.artifex.mupdf.fitz.PathWalker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Reading the segments of a path from Java: one callback per segment
+// through walk, or all of them at once as arrays.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathBenchmark
+{
+	@Param({"100", "10000"})
+	public int segments;
+
+	private Path path;
+
+	private static class SumWalker implements PathWalker
+	{
+		float sum;
+
+		public void moveTo(float x, float y) { sum += x + y; }
+		public void lineTo(float x, float y) { sum += x + y; }
+		public void curveTo(float cx1, float cy1, float cx2, float cy2, float ex, float ey) { sum += ex + ey; }
+		public void closePath() { sum += 1; }
+	}
+
+	@Setup
+	public void setup() {
+		path = new Path();
+		path.moveTo(0, 0);
+		for (int i = 1; i < segments; i++) {
+			if (i % 2 == 0)
+				path.lineTo(i, i % 97);
+			else
+				path.curveTo(i, 0, i, 10, i, i % 89);
+		}
+		path.closePath();
+	}
+
+	@TearDown
+	public void tearDown() {
+		path.destroy();
+	}
+
+	@Benchmark
+	public float walk() {
+		SumWalker walker = new SumWalker();
+		path.walk(walker);
+		return walker.sum;
+	}
+
+	@Benchmark
+	public float getCoordinates() {
+		byte commands[] = path.getCommands();
+		float coords[] = path.getCoordinates();
+		return commands.length + coords[coords.length - 1];
+	}
+}
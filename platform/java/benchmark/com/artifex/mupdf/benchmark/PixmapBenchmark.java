@@ -0,0 +1,62 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.ColorSpace;
+import com.artifex.mupdf.fitz.Pixmap;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Getting the pixels of a rendered page into Java: copied into a new
+// array, or read in place through a buffer.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixmapBenchmark
+{
+	/* A US Letter page at 72, 150 and 300 dpi */
+	@Param({"612x792", "1275x1650", "2550x3300"})
+	public String size;
+
+	private Pixmap pixmap;
+
+	@Setup
+	public void setup() {
+		String wh[] = size.split("x");
+		pixmap = new Pixmap(ColorSpace.DeviceRGB, Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+		pixmap.clear(255);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pixmap.destroy();
+	}
+
+	@Benchmark
+	public int[] getPixels() {
+		return pixmap.getPixels();
+	}
+
+	@Benchmark
+	public byte[] getSamples() {
+		return pixmap.getSamples();
+	}
+
+	@Benchmark
+	public int readPixelsBuffer() {
+		IntBuffer buf = pixmap.getPixelsBuffer();
+		int sum = 0;
+		while (buf.hasRemaining())
+			sum += buf.get();
+		return sum;
+	}
+}
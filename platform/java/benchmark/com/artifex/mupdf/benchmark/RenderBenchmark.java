@@ -0,0 +1,61 @@
+package com.artifex.mupdf.benchmark;
+
+import com.artifex.mupdf.fitz.ColorSpace;
+import com.artifex.mupdf.fitz.Document;
+import com.artifex.mupdf.fitz.Matrix;
+import com.artifex.mupdf.fitz.Page;
+import com.artifex.mupdf.fitz.Pixmap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Page.toPixmap at screen, print preview and print resolutions. The page
+// stays loaded, so after the first iteration the fonts and decoded images
+// come from the store, as they would for a viewer redrawing a page.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark
+{
+	@Param({TestDocuments.TEXT, TestDocuments.VECTOR, TestDocuments.IMAGE})
+	public String kind;
+
+	@Param({"72", "150", "300"})
+	public int dpi;
+
+	private Document doc;
+	private Page page;
+	private Matrix ctm;
+
+	@Setup
+	public void setup() throws Exception {
+		doc = new Document(TestDocuments.path(kind));
+		page = doc.loadPage(0);
+		ctm = new Matrix(dpi / 72f);
+	}
+
+	@TearDown
+	public void tearDown() {
+		page.destroy();
+		doc.destroy();
+	}
+
+	@Benchmark
+	public int toPixmap() {
+		Pixmap pixmap = page.toPixmap(ctm, ColorSpace.DeviceRGB);
+		try {
+			return pixmap.getWidth();
+		} finally {
+			pixmap.destroy();
+		}
+	}
+}
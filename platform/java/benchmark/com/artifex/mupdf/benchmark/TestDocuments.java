@@ -0,0 +1,211 @@
+package com.artifex.mupdf.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+// Generates the PDF files the benchmarks run against, so that no binary
+// test files need to be kept in the repository. The contents are produced
+// from a fixed seed and are the same on every run.
+//
+// TEXT is a page of small type, VECTOR a page of stroked and filled
+// curves, IMAGE a page holding one large deflated RGB image, and PAGES a
+// document of many text pages.
+public class TestDocuments
+{
+	public static final String TEXT = "text";
+	public static final String VECTOR = "vector";
+	public static final String IMAGE = "image";
+	public static final String PAGES = "pages";
+
+	public static final int PAGE_COUNT = 200;
+
+	private static final int WIDTH = 612;
+	private static final int HEIGHT = 792;
+	private static final int IMAGE_SIZE = 1500;
+
+	private static File dir;
+
+	/* The path of the generated file of the given kind, created in a
+	 * temporary directory on first use. */
+	public static synchronized String path(String kind) throws IOException {
+		if (dir == null) {
+			dir = File.createTempFile("mupdf-benchmark", "");
+			if (!dir.delete() || !dir.mkdir())
+				throw new IOException("cannot create " + dir);
+			dir.deleteOnExit();
+		}
+		File file = new File(dir, kind + ".pdf");
+		if (!file.exists()) {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(generate(kind));
+			} finally {
+				out.close();
+			}
+			file.deleteOnExit();
+		}
+		return file.getPath();
+	}
+
+	public static byte[] generate(String kind) {
+		Writer w = new Writer();
+		Random random = new Random(kind.hashCode());
+
+		if (kind.equals(TEXT)) {
+			w.page(textContent(random), null);
+		} else if (kind.equals(VECTOR)) {
+			w.page(vectorContent(random), null);
+		} else if (kind.equals(IMAGE)) {
+			w.page("q " + (WIDTH - 72) + " 0 0 " + (WIDTH - 72) + " 36 " + (HEIGHT - WIDTH + 36) + " cm /Im0 Do Q", imagePixels(random));
+		} else if (kind.equals(PAGES)) {
+			for (int i = 0; i < PAGE_COUNT; i++)
+				w.page(textContent(random), null);
+		} else {
+			throw new IllegalArgumentException("unknown test document: " + kind);
+		}
+		return w.finish();
+	}
+
+	private static String textContent(Random random) {
+		StringBuilder sb = new StringBuilder("BT /F0 8 Tf 10 TL 36 " + (HEIGHT - 36) + " Td\n");
+		for (int line = 0; line < 72; line++) {
+			sb.append('(');
+			for (int i = 0; i < 120; i++)
+				sb.append(random.nextInt(6) == 0 ? ' ' : (char)('a' + random.nextInt(26)));
+			sb.append(") '\n");
+		}
+		return sb.append("ET").toString();
+	}
+
+	private static String vectorContent(Random random) {
+		StringBuilder sb = new StringBuilder("1 J 1 j\n");
+		for (int i = 0; i < 2000; i++) {
+			sb.append(fraction(random)).append(' ').append(fraction(random)).append(' ').append(fraction(random));
+			sb.append(i % 2 == 0 ? " rg " : " RG ");
+			sb.append(fraction(random) * 2).append(" w ");
+			sb.append(random.nextInt(WIDTH)).append(' ').append(random.nextInt(HEIGHT)).append(" m");
+			for (int k = 0; k < 3; k++)
+				sb.append(' ').append(random.nextInt(WIDTH)).append(' ').append(random.nextInt(HEIGHT));
+			sb.append(i % 2 == 0 ? " c f\n" : " c S\n");
+		}
+		return sb.toString();
+	}
+
+	/* Kept to three decimals, which never print in exponent form. */
+	private static float fraction(Random random) {
+		return random.nextInt(1000) / 1000f;
+	}
+
+	/* Smooth gradients with some noise, so that the image neither
+	 * compresses to nothing nor decodes unrealistically slowly. */
+	private static byte[] imagePixels(Random random) {
+		byte pixels[] = new byte[IMAGE_SIZE * IMAGE_SIZE * 3];
+		int i = 0;
+		for (int y = 0; y < IMAGE_SIZE; y++) {
+			for (int x = 0; x < IMAGE_SIZE; x++) {
+				pixels[i++] = (byte)(x * 255 / IMAGE_SIZE + random.nextInt(16));
+				pixels[i++] = (byte)(y * 255 / IMAGE_SIZE + random.nextInt(16));
+				pixels[i++] = (byte)((x + y) * 127 / IMAGE_SIZE + random.nextInt(16));
+			}
+		}
+		return pixels;
+	}
+
+	private static byte[] deflate(byte data[]) {
+		Deflater deflater = new Deflater();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte buf[] = new byte[65536];
+		deflater.setInput(data);
+		deflater.finish();
+		while (!deflater.finished())
+			out.write(buf, 0, deflater.deflate(buf));
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	// Writes the objects of a PDF file one after the other, keeping their
+	// offsets for the cross reference table. Object 1 is the catalog,
+	// object 2 the page tree and object 3 the font; the pages follow.
+	private static class Writer
+	{
+		private ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private ArrayList<Integer> offsets = new ArrayList<Integer>();
+		private ArrayList<Integer> pages = new ArrayList<Integer>();
+		private ArrayList<byte[]> objects = new ArrayList<byte[]>();
+
+		Writer() {
+			objects.add(null);
+			objects.add(null);
+			objects.add(bytes("<</Type/Font/Subtype/Type1/BaseFont/Helvetica>>"));
+		}
+
+		private int add(byte object[]) {
+			objects.add(object);
+			return objects.size();
+		}
+
+		private int addStream(String dict, byte data[]) {
+			ByteArrayOutputStream s = new ByteArrayOutputStream();
+			byte head[] = bytes("<<" + dict + "/Length " + data.length + ">>\nstream\n");
+			byte tail[] = bytes("\nendstream");
+			s.write(head, 0, head.length);
+			s.write(data, 0, data.length);
+			s.write(tail, 0, tail.length);
+			return add(s.toByteArray());
+		}
+
+		void page(String content, byte image[]) {
+			String xobjects = "";
+			if (image != null) {
+				int im = addStream("/Type/XObject/Subtype/Image/Width " + IMAGE_SIZE + "/Height " + IMAGE_SIZE +
+						"/ColorSpace/DeviceRGB/BitsPerComponent 8/Filter/FlateDecode", deflate(image));
+				xobjects = "/XObject<</Im0 " + im + " 0 R>>";
+			}
+			int contents = addStream("", bytes(content));
+			pages.add(add(bytes("<</Type/Page/Parent 2 0 R/MediaBox[0 0 " + WIDTH + " " + HEIGHT + "]" +
+					"/Resources<</Font<</F0 3 0 R>>" + xobjects + ">>/Contents " + contents + " 0 R>>")));
+		}
+
+		byte[] finish() {
+			StringBuilder kids = new StringBuilder();
+			for (int page : pages)
+				kids.append(page).append(" 0 R ");
+			objects.set(0, bytes("<</Type/Catalog/Pages 2 0 R>>"));
+			objects.set(1, bytes("<</Type/Pages/Count " + pages.size() + "/Kids[" + kids + "]>>"));
+
+			write("%PDF-1.4\n");
+			for (int i = 0; i < objects.size(); i++) {
+				offsets.add(out.size());
+				write((i + 1) + " 0 obj\n");
+				byte object[] = objects.get(i);
+				out.write(object, 0, object.length);
+				write("\nendobj\n");
+			}
+
+			int xref = out.size();
+			write("xref\n0 " + (objects.size() + 1) + "\n0000000000 65535 f \n");
+			for (int offset : offsets)
+				write(String.format("%010d 00000 n \n", offset));
+			write("trailer\n<</Size " + (objects.size() + 1) + "/Root 1 0 R>>\nstartxref\n" + xref + "\n%EOF\n");
+			return out.toByteArray();
+		}
+
+		private void write(String s) {
+			byte b[] = bytes(s);
+			out.write(b, 0, b.length);
+		}
+
+		private static byte[] bytes(String s) {
+			try {
+				return s.getBytes("ISO-8859-1");
+			} catch (java.io.UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
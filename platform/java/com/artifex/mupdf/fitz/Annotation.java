@@ -1,18 +1,25 @@
 package com.artifex.mupdf.fitz;
 
-public class Annotation
+public class Annotation implements AutoCloseable
 {
 	private long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private Annotation(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.ANNOTATION, pointer);
 	}
 
 	public native void run(Device dev, Matrix ctm, Cookie cookie);
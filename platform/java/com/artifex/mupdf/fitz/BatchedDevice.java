@@ -0,0 +1,352 @@
+package com.artifex.mupdf.fitz;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+
+// A device that records the operations it is given into a binary buffer
+// on the native side, and hands the buffer to Java one chunk at a time
+// instead of calling into Java once per operation. The chunks are then
+// replayed into the target device. Path segments and glyphs are part of
+// the buffer, so walking the Path and Text objects the target receives
+// does not call back into native code either.
+//
+// The Path, Text, StrokeState, Image, Shade, Font and ColorSpace objects
+// passed to the target are borrowed for the duration of the call, as with
+// Device.setReuseArguments; copy them to keep them, and never destroy them.
+// Remember to call flush() once the page or display list has been run, to
+// deliver the last chunk.
+public class BatchedDevice extends Device
+{
+	public static final int DEFAULT_BUFFER_SIZE = 64 << 10;
+
+	/* Opcodes of the recorded operations */
+	public static final int FILL_PATH = 1;
+	public static final int STROKE_PATH = 2;
+	public static final int CLIP_PATH = 3;
+	public static final int CLIP_STROKE_PATH = 4;
+	public static final int FILL_TEXT = 5;
+	public static final int STROKE_TEXT = 6;
+	public static final int CLIP_TEXT = 7;
+	public static final int CLIP_STROKE_TEXT = 8;
+	public static final int IGNORE_TEXT = 9;
+	public static final int FILL_SHADE = 10;
+	public static final int FILL_IMAGE = 11;
+	public static final int FILL_IMAGE_MASK = 12;
+	public static final int CLIP_IMAGE_MASK = 13;
+	public static final int POP_CLIP = 14;
+	public static final int BEGIN_MASK = 15;
+	public static final int END_MASK = 16;
+	public static final int BEGIN_GROUP = 17;
+	public static final int END_GROUP = 18;
+	public static final int BEGIN_TILE = 19;
+	public static final int END_TILE = 20;
+
+	private Device target;
+
+	private BatchedPath path = new BatchedPath();
+	private BatchedText text = new BatchedText();
+	private StrokeState stroke = new StrokeState(0);
+	private Image image = new Image(0);
+	private Shade shade = new Shade(0);
+	private HashMap<Long, Font> fonts = new HashMap<Long, Font>();
+	private HashMap<Long, ColorSpace> colorspaces = new HashMap<Long, ColorSpace>();
+
+	private native long newNativeBatchedDevice(int bufferSize);
+
+	/* bufferSize is the number of bytes collected before a chunk is
+	 * delivered. A single operation larger than that is delivered on
+	 * its own. */
+	public BatchedDevice(Device target, int bufferSize) {
+		super(0);
+		this.target = target;
+		adopt(newNativeBatchedDevice(bufferSize));
+	}
+
+	public BatchedDevice(Device target) {
+		this(target, DEFAULT_BUFFER_SIZE);
+	}
+
+	/* Deliver the operations recorded since the last chunk. */
+	public native void flush();
+
+	/* Called with every chunk. The buffer refers to native memory that is
+	 * reused once this returns, so it must not be kept. Override this to
+	 * consume the operations some other way than through replay. */
+	protected void processBatch(ByteBuffer batch) {
+		if (target != null)
+			replay(batch, target);
+	}
+
+	/* Decode a chunk and call the corresponding methods of dev. The
+	 * result of beginTile is ignored; the native side has already been
+	 * told to send the tile contents. */
+	public void replay(ByteBuffer batch, Device dev) {
+		ByteBuffer buf = batch.duplicate().order(ByteOrder.nativeOrder());
+
+		/* Arguments are evaluated left to right, which is the order in
+		 * which they are stored. */
+		try {
+			while (buf.hasRemaining()) {
+				int op = buf.getInt();
+				try {
+					switch (op) {
+					case FILL_PATH:
+						dev.fillPath(readPath(buf), buf.getInt() != 0, readMatrix(buf), readColorSpace(buf), readColor(buf), buf.getFloat());
+						break;
+					case STROKE_PATH:
+						dev.strokePath(readPath(buf), readStrokeState(buf), readMatrix(buf), readColorSpace(buf), readColor(buf), buf.getFloat());
+						break;
+					case CLIP_PATH:
+						dev.clipPath(readPath(buf), buf.getInt() != 0, readMatrix(buf));
+						break;
+					case CLIP_STROKE_PATH:
+						dev.clipStrokePath(readPath(buf), readStrokeState(buf), readMatrix(buf));
+						break;
+					case FILL_TEXT:
+						dev.fillText(readText(buf), readMatrix(buf), readColorSpace(buf), readColor(buf), buf.getFloat());
+						break;
+					case STROKE_TEXT:
+						dev.strokeText(readText(buf), readStrokeState(buf), readMatrix(buf), readColorSpace(buf), readColor(buf), buf.getFloat());
+						break;
+					case CLIP_TEXT:
+						dev.clipText(readText(buf), readMatrix(buf));
+						break;
+					case CLIP_STROKE_TEXT:
+						dev.clipStrokeText(readText(buf), readStrokeState(buf), readMatrix(buf));
+						break;
+					case IGNORE_TEXT:
+						dev.ignoreText(readText(buf), readMatrix(buf));
+						break;
+					case FILL_SHADE:
+						dev.fillShade(readShade(buf), readMatrix(buf), buf.getFloat());
+						break;
+					case FILL_IMAGE:
+						dev.fillImage(readImage(buf), readMatrix(buf), buf.getFloat());
+						break;
+					case FILL_IMAGE_MASK:
+						dev.fillImageMask(readImage(buf), readMatrix(buf), readColorSpace(buf), readColor(buf), buf.getFloat());
+						break;
+					case CLIP_IMAGE_MASK:
+						dev.clipImageMask(readImage(buf), readMatrix(buf));
+						break;
+					case POP_CLIP:
+						dev.popClip();
+						break;
+					case BEGIN_MASK:
+						dev.beginMask(readRect(buf), buf.getInt() != 0, readColorSpace(buf), readColor(buf));
+						break;
+					case END_MASK:
+						dev.endMask();
+						break;
+					case BEGIN_GROUP:
+						dev.beginGroup(readRect(buf), buf.getInt() != 0, buf.getInt() != 0, buf.getInt(), buf.getFloat());
+						break;
+					case END_GROUP:
+						dev.endGroup();
+						break;
+					case BEGIN_TILE:
+						dev.beginTile(readRect(buf), readRect(buf), buf.getFloat(), buf.getFloat(), readMatrix(buf), buf.getInt());
+						break;
+					case END_TILE:
+						dev.endTile();
+						break;
+					default:
+						throw new IllegalArgumentException("unknown batched device operation: " + op);
+					}
+				} finally {
+					path.release();
+					text.release();
+					stroke.pointer = 0;
+					image.pointer = 0;
+					shade.pointer = 0;
+				}
+			}
+		} finally {
+			for (Font font : fonts.values())
+				font.pointer = 0;
+			fonts.clear();
+			for (ColorSpace cs : colorspaces.values())
+				cs.pointer = 0;
+			colorspaces.clear();
+		}
+	}
+
+	private static Matrix readMatrix(ByteBuffer buf) {
+		return new Matrix(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+	}
+
+	private static Rect readRect(ByteBuffer buf) {
+		return new Rect(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+	}
+
+	private static float[] readColor(ByteBuffer buf) {
+		int n = buf.getInt();
+		if (n < 0)
+			return null;
+		float[] color = new float[n];
+		for (int i = 0; i < n; i++)
+			color[i] = buf.getFloat();
+		return color;
+	}
+
+	private ColorSpace readColorSpace(ByteBuffer buf) {
+		long p = buf.getLong();
+		if (p == 0)
+			return null;
+		if (p == ColorSpace.DeviceGray.pointer) return ColorSpace.DeviceGray;
+		if (p == ColorSpace.DeviceRGB.pointer) return ColorSpace.DeviceRGB;
+		if (p == ColorSpace.DeviceBGR.pointer) return ColorSpace.DeviceBGR;
+		if (p == ColorSpace.DeviceCMYK.pointer) return ColorSpace.DeviceCMYK;
+		ColorSpace cs = colorspaces.get(p);
+		if (cs == null) {
+			/* Made with 0 so that it is not registered with the
+			 * Cleaner, as the colorspace is only borrowed. */
+			cs = new ColorSpace(0);
+			cs.pointer = p;
+			colorspaces.put(p, cs);
+		}
+		return cs;
+	}
+
+	private Font readFont(ByteBuffer buf) {
+		long p = buf.getLong();
+		if (p == 0)
+			return null;
+		Font font = fonts.get(p);
+		if (font == null) {
+			font = new Font(0);
+			font.pointer = p;
+			fonts.put(p, font);
+		}
+		return font;
+	}
+
+	private StrokeState readStrokeState(ByteBuffer buf) {
+		stroke.pointer = buf.getLong();
+		return stroke;
+	}
+
+	private Image readImage(ByteBuffer buf) {
+		image.pointer = buf.getLong();
+		return image;
+	}
+
+	private Shade readShade(ByteBuffer buf) {
+		shade.pointer = buf.getLong();
+		return shade;
+	}
+
+	private Path readPath(ByteBuffer buf) {
+		path.borrow(buf);
+		return path;
+	}
+
+	private Text readText(ByteBuffer buf) {
+		text.borrow(buf);
+		return text;
+	}
+
+	/* A path whose segments are read from the chunk rather than from the
+	 * native path it wraps. */
+	private static class BatchedPath extends Path
+	{
+		private ByteBuffer data;
+		private int offset;
+		private int count;
+
+		BatchedPath() {
+			super(0);
+		}
+
+		void borrow(ByteBuffer buf) {
+			pointer = buf.getLong();
+			int size = buf.getInt();
+			count = buf.getInt();
+			offset = buf.position();
+			data = buf;
+			buf.position(offset + size);
+		}
+
+		void release() {
+			pointer = 0;
+			data = null;
+			count = 0;
+		}
+
+		public void walk(PathWalker walker) {
+			if (data == null)
+				return;
+			ByteBuffer buf = data.duplicate().order(ByteOrder.nativeOrder());
+			buf.position(offset);
+			for (int i = 0; i < count; i++) {
+				switch (buf.get()) {
+				case MOVETO:
+					walker.moveTo(buf.getFloat(), buf.getFloat());
+					break;
+				case LINETO:
+					walker.lineTo(buf.getFloat(), buf.getFloat());
+					break;
+				case CURVETO:
+					walker.curveTo(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+					break;
+				case CLOSEPATH:
+					walker.closePath();
+					break;
+				}
+			}
+		}
+	}
+
+	/* Likewise for text; the glyphs of each span follow the span's font,
+	 * transform and writing mode. */
+	private class BatchedText extends Text
+	{
+		private ByteBuffer data;
+		private int offset;
+		private int count;
+
+		BatchedText() {
+			super(0);
+		}
+
+		void borrow(ByteBuffer buf) {
+			pointer = buf.getLong();
+			int size = buf.getInt();
+			count = buf.getInt();
+			offset = buf.position();
+			data = buf;
+			buf.position(offset + size);
+		}
+
+		void release() {
+			pointer = 0;
+			data = null;
+			count = 0;
+		}
+
+		public void walk(TextWalker walker) {
+			if (data == null)
+				return;
+			ByteBuffer buf = data.duplicate().order(ByteOrder.nativeOrder());
+			buf.position(offset);
+			Matrix trm = new Matrix();
+			for (int i = 0; i < count; i++) {
+				Font font = readFont(buf);
+				trm.a = buf.getFloat();
+				trm.b = buf.getFloat();
+				trm.c = buf.getFloat();
+				trm.d = buf.getFloat();
+				boolean wmode = buf.getInt() != 0;
+				int len = buf.getInt();
+				for (int k = 0; k < len; k++) {
+					int glyph = buf.getInt();
+					int unicode = buf.getInt();
+					trm.e = buf.getFloat();
+					trm.f = buf.getFloat();
+					walker.showGlyph(font, trm, glyph, unicode, wmode);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.artifex.mupdf.fitz;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+// A RandomAccessSource reading from a channel, for example one opened on
+// an archive entry or an object in a blob store. The channel is not
+// closed along with the document.
+public class ChannelSource implements RandomAccessSource
+{
+	private final SeekableByteChannel channel;
+
+	public ChannelSource(SeekableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	public int read(long position, ByteBuffer buffer) throws IOException {
+		if (channel instanceof FileChannel)
+			return ((FileChannel)channel).read(buffer, position);
+		synchronized (channel) {
+			channel.position(position);
+			return channel.read(buffer);
+		}
+	}
+}
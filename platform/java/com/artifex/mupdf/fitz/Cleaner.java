@@ -0,0 +1,156 @@
+package com.artifex.mupdf.fitz;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Releases the native objects behind the Java wrappers. Every wrapper that
+// owns a native object registers it here; destroy() and close() release it
+// at once, and if the wrapper is garbage collected first, a daemon thread
+// releases it instead. This takes the place of finalize(), so the wrappers
+// no longer have to pass through the finalizer queue before their memory
+// can be reclaimed.
+//
+// Wrappers that merely borrow a native object for the duration of a call
+// (those with a pointer of 0 when constructed) are never registered.
+class Cleaner
+{
+	static {
+		Context.init();
+	}
+
+	/* The kinds of native object, as understood by drop */
+	static final int ANNOTATION = 1;
+	static final int COLORSPACE = 2;
+	static final int COOKIE = 3;
+	static final int DEVICE = 4;
+	static final int DISPLAY_LIST = 5;
+	static final int DOCUMENT = 6;
+	static final int FONT = 7;
+	static final int IMAGE = 8;
+	static final int LINK = 9;
+	static final int NATIVE_DEVICE = 10;
+	static final int OUTLINE = 11;
+	static final int PAGE = 12;
+	static final int PATH = 13;
+	static final int PIXMAP = 14;
+	static final int SHADE = 15;
+	static final int STROKE_STATE = 16;
+	static final int TEXT = 17;
+
+	private static final String NAMES[] = {
+		null, "annotation", "colorspace", "cookie", "device", "display list",
+		"document", "font", "image", "link", "device", "outline", "page",
+		"path", "pixmap", "shade", "stroke state", "text"
+	};
+
+	private static final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/* The registered references, which must stay reachable themselves
+	 * until they have been enqueued. */
+	private static final HashSet<Ref> refs = new HashSet<Ref>();
+
+	/* For each kind, the number of objects registered and not yet
+	 * released, and the number released by the daemon thread rather than
+	 * by destroy(). Guarded by refs. */
+	private static final int live[] = new int[NAMES.length];
+	private static final int collected[] = new int[NAMES.length];
+
+	private static native void drop(int kind, long pointer, long info);
+
+	static class Ref extends PhantomReference<Object>
+	{
+		private final int kind;
+		private long pointer;
+		private long info;
+
+		/* Kept alive for as long as the native object may use it. */
+		private Object resource;
+
+		private Ref(Object obj, int kind, long pointer, long info, Object resource) {
+			super(obj, queue);
+			this.kind = kind;
+			this.pointer = pointer;
+			this.info = info;
+			this.resource = resource;
+		}
+
+		/* Release the native object, if that has not been done already. */
+		void clean() {
+			release(false);
+		}
+
+		private synchronized void release(boolean gc) {
+			if (pointer == 0)
+				return;
+			synchronized (refs) {
+				refs.remove(this);
+				live[kind]--;
+				if (gc)
+					collected[kind]++;
+			}
+			try {
+				drop(kind, pointer, info);
+			} finally {
+				pointer = 0;
+				info = 0;
+				resource = null;
+			}
+		}
+	}
+
+	static Ref register(Object obj, int kind, long pointer, long info, Object resource) {
+		if (pointer == 0)
+			return null;
+		Ref ref = new Ref(obj, kind, pointer, info, resource);
+		synchronized (refs) {
+			refs.add(ref);
+			live[kind]++;
+		}
+		return ref;
+	}
+
+	static Ref register(Object obj, int kind, long pointer) {
+		return register(obj, kind, pointer, 0, null);
+	}
+
+	static {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				while (true) {
+					try {
+						((Ref)queue.remove()).release(true);
+					} catch (InterruptedException e) {
+						/* Keep going; there is no one to stop for. */
+					} catch (RuntimeException e) {
+						/* A failure to release one object must not stop
+						 * the others from being released. */
+					}
+				}
+			}
+		}, "mupdf-cleaner");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	static Map<String, Integer> liveObjects() {
+		return counts(live);
+	}
+
+	static Map<String, Integer> collectedObjects() {
+		return counts(collected);
+	}
+
+	private static Map<String, Integer> counts(int count[]) {
+		TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		synchronized (refs) {
+			for (int i = 1; i < NAMES.length; i++) {
+				Integer n = map.get(NAMES[i]);
+				map.put(NAMES[i], (n != null ? n : 0) + count[i]);
+			}
+		}
+		return map;
+	}
+}
@@ -1,18 +1,29 @@
 package com.artifex.mupdf.fitz;
 
-public class ColorSpace
+public class ColorSpace implements AutoCloseable
 {
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
+	/* The device colorspaces are shared by the whole process, and are
+	 * never destroyed. */
 	public void destroy() {
-		finalize();
+		if (isDeviceColorSpace())
+			return;
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
-	private ColorSpace(long p) {
+	public void close() {
+		destroy();
+	}
+
+	ColorSpace(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.COLORSPACE, pointer);
 	}
 
 	private static native long nativeDeviceGray();
@@ -28,10 +39,21 @@ public class ColorSpace
 		return new ColorSpace(p);
 	}
 
-	public static ColorSpace DeviceGray = new ColorSpace(nativeDeviceGray());
-	public static ColorSpace DeviceRGB = new ColorSpace(nativeDeviceRGB());
-	public static ColorSpace DeviceBGR = new ColorSpace(nativeDeviceBGR());
-	public static ColorSpace DeviceCMYK = new ColorSpace(nativeDeviceCMYK());
+	/* Not registered with the Cleaner, as they are never dropped. */
+	private static ColorSpace device(long p) {
+		ColorSpace cs = new ColorSpace(0);
+		cs.pointer = p;
+		return cs;
+	}
+
+	public static ColorSpace DeviceGray = device(nativeDeviceGray());
+	public static ColorSpace DeviceRGB = device(nativeDeviceRGB());
+	public static ColorSpace DeviceBGR = device(nativeDeviceBGR());
+	public static ColorSpace DeviceCMYK = device(nativeDeviceCMYK());
+
+	private boolean isDeviceColorSpace() {
+		return this == DeviceGray || this == DeviceRGB || this == DeviceBGR || this == DeviceCMYK;
+	}
 
 	public native int getNumberOfComponents();
 
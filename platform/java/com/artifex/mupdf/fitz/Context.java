@@ -3,26 +3,83 @@ package com.artifex.mupdf.fitz;
 // This class handles the loading of the MuPDF shared library, together
 // with the ThreadLocal magic to get the required context.
 //
-// The only publicly accessible method here is Context.setStoreSize, which
-// sets the store size to use. This must be called before any other MuPDF
-// function.
+// The only publicly accessible methods here are those controlling the
+// resource store, in which decoded fonts, images and the like are kept
+// for reuse. The store is shared by all threads, and may be resized at
+// any time.
+//
+// The native memory used by MuPDF is only counted if the system property
+// named by TRACK_MEMORY is set to true before the library is loaded, for
+// example with -Dcom.artifex.mupdf.fitz.trackMemory=true on the command
+// line, as every allocation then takes a lock to update the counts.
 public class Context
 {
+	public static final String TRACK_MEMORY = "com.artifex.mupdf.fitz.trackMemory";
+
 	private static boolean inited = false;
-	private static native int initNative();
+	private static native int initNative(boolean trackMemory);
 
 	public static void init() {
 		if (!inited) {
 			inited = true;
 			System.loadLibrary("mupdf_java");
-			if (initNative() < 0)
+			if (initNative(Boolean.getBoolean(TRACK_MEMORY)) < 0)
 				throw new RuntimeException("cannot initialize mupdf library");
 		}
 	}
 
 	static { init(); }
 
-	// FIXME: We should support the store size being changed dynamically.
-	// This requires changes within the MuPDF core.
-	//public native static void setStoreSize(long newSize);
+	public static final long STORE_UNLIMITED = 0;
+
+	/* Set the maximum size of the store in bytes. Shrinking it evicts
+	 * whatever no longer fits, apart from items still in use. */
+	public native static void setStoreSize(long size);
+	public native static long getStoreSize();
+
+	/* The total size of the items currently in the store. */
+	public native static long getStoreUsage();
+
+	/* Evict items until the store is down to the given percentage of its
+	 * current size, for example when memory is running low. Returns false
+	 * if too many of the items are in use to get that far. */
+	public native static boolean shrinkStore(int percent);
+
+	/* One entry for each kind of item that has been in the store, and
+	 * one for the glyph cache. */
+	public native static StoreStatistics[] getStoreStatistics();
+	public native static void resetStoreStatistics();
+
+	private native static boolean getNativeMemoryStats(long stats[]);
+
+	private static long lastAllocations = 0;
+	private static long lastTime = System.nanoTime();
+
+	/* The allocation rate is measured from the previous call, or from
+	 * when the library was loaded. */
+	public static synchronized MemoryStats getMemoryStats() {
+		long stats[] = new long[3];
+		long now = System.nanoTime();
+		MemoryStats ms = new MemoryStats();
+
+		ms.tracking = getNativeMemoryStats(stats);
+		ms.current = stats[0];
+		ms.peak = stats[1];
+		ms.allocations = stats[2];
+		if (now > lastTime)
+			ms.allocationsPerSecond = (float)((ms.allocations - lastAllocations) * 1e9 / (now - lastTime));
+		ms.liveObjects = Cleaner.liveObjects();
+		ms.collectedObjects = Cleaner.collectedObjects();
+
+		lastAllocations = ms.allocations;
+		lastTime = now;
+		return ms;
+	}
+
+	/* The number of bits of anti-aliasing used when drawing, from 0
+	 * (none) to 8. Unlike the store, this is set for the calling thread
+	 * only, so a renderer can lower it for a quick draft without
+	 * affecting renders on other threads. */
+	public native static void setAntiAliasLevel(int bits);
+	public native static int getAntiAliasLevel();
 }
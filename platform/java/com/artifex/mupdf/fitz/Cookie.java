@@ -1,21 +1,134 @@
 package com.artifex.mupdf.fitz;
 
-public class Cookie
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class Cookie implements AutoCloseable
 {
 	private long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
+
+	/* Aborts cookies whose deadline has passed. */
+	private static ScheduledThreadPoolExecutor deadlines;
+
+	private ScheduledFuture<?> deadline;
+	private volatile boolean expired;
 
-	public void destroy() {
-		finalize();
+	public synchronized void destroy() {
+		clearDeadline();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative();
 
 	public Cookie() {
 		pointer = newNative();
+		cleaner = Cleaner.register(this, Cleaner.COOKIE, pointer);
 	}
 
 	public native void abort();
+	public native boolean isAborted();
+
+	/* These may be read from another thread while an operation runs with
+	 * the cookie. Progress counts up towards the maximum, which is -1 if
+	 * it is not known in advance. The error count is the number of errors
+	 * that were skipped over rather than ending the operation, so that a
+	 * render with errors may be missing some of its content. */
+	public native int getProgress();
+	public native int getProgressMax();
+	public native int getErrors();
+
+	/* With this set, content whose bytes have not arrived yet in a
+	 * progressively loaded document is left out rather than failing the
+	 * whole run with TryLaterException, and isIncomplete tells whether
+	 * that happened. */
+	public native void setIncompleteOk(boolean ok);
+	public native boolean isIncomplete();
+
+	/* Limit the native memory an operation run with this cookie may hold
+	 * to the given number of bytes, or remove the limit with 0. When an
+	 * allocation would go over it, the operation is aborted, as by
+	 * abort(), and throws MemoryLimitException. This counts what is
+	 * allocated and not yet freed on every thread running an operation
+	 * with the cookie, including items added to the store, from now on;
+	 * set the limit again to start counting afresh. Memory is only
+	 * counted as freed when an operation with this cookie frees or
+	 * reallocates it; if something else does, such as an operation with
+	 * another cookie reusing a stored item, it stays counted here. */
+	public native void setMemoryLimit(long bytes);
+
+	/* Abort whatever runs with this cookie once System.nanoTime() reaches
+	 * deadlineNanos, replacing any earlier deadline. The interpreter stops
+	 * at the next point where it checks for abort, leaving what it has
+	 * drawn so far; isDeadlineExpired then returns true. As with abort(),
+	 * a cookie that has expired stays aborted. */
+	public synchronized void setDeadline(long deadlineNanos) {
+		clearDeadline();
+		long delay = deadlineNanos - System.nanoTime();
+		if (delay <= 0) {
+			expire();
+			return;
+		}
+		deadline = scheduler().schedule(new Expiry(this), delay, TimeUnit.NANOSECONDS);
+	}
+
+	/* Remove the deadline, if it has not passed yet. */
+	public synchronized void clearDeadline() {
+		if (deadline != null)
+			deadline.cancel(false);
+		deadline = null;
+	}
+
+	public boolean isDeadlineExpired() {
+		return expired;
+	}
+
+	private synchronized void expire() {
+		if (pointer == 0)
+			return;
+		expired = true;
+		abort();
+	}
+
+	/* Holds the cookie weakly, so that a pending deadline does not keep
+	 * an abandoned cookie from being collected. */
+	private static class Expiry implements Runnable
+	{
+		private final WeakReference<Cookie> cookie;
+
+		Expiry(Cookie cookie) {
+			this.cookie = new WeakReference<Cookie>(cookie);
+		}
+
+		public void run() {
+			Cookie c = cookie.get();
+			if (c != null)
+				c.expire();
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor scheduler() {
+		if (deadlines == null) {
+			deadlines = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "mupdf-deadline");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			deadlines.setRemoveOnCancelPolicy(true);
+		}
+		return deadlines;
+	}
 }
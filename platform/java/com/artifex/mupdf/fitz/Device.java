@@ -1,24 +1,42 @@
 package com.artifex.mupdf.fitz;
 
-public class Device
+public class Device implements AutoCloseable
 {
 	protected long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative();
 
 	protected Device() {
-		pointer = newNative();
+		adopt(newNative());
 	}
 
 	protected Device(long p) {
+		adopt(p);
+	}
+
+	/* For subclasses that can only create their native device once the
+	 * Java object has been constructed: take ownership of it, so that it
+	 * is released when this device is destroyed or collected. */
+	protected void adopt(long p) {
 		pointer = p;
+		cleaner = register(p);
+	}
+
+	Cleaner.Ref register(long p) {
+		return Cleaner.register(this, Cleaner.DEVICE, p);
 	}
 
 	/* An accessor for device hints */
@@ -26,6 +44,15 @@ public class Device
 	public native void enableDeviceHints(int hints);
 	public native void disableDeviceHints(int hints);
 
+	/* By default every call to the methods below gets newly allocated
+	 * Path, Text, StrokeState, Image, Matrix and color array arguments.
+	 * With argument reuse enabled, the device instead receives the same
+	 * scratch objects on every call, refilled with the new values. Such
+	 * arguments are only valid until the method returns; copy them
+	 * (e.g. new Path(path), new Matrix(...), color.clone()) to keep them.
+	 * This has no effect on devices implemented in C. */
+	public native void setReuseArguments(boolean reuse);
+
 	/* To implement your own device in Java, you should define your own
 	 * class that extends Device, and override as many of the following
 	 * functions as is appropriate. For example:
@@ -100,4 +127,5 @@ public class Device
 	/* Device hints */
 	public static final int FZ_IGNORE_IMAGE = 1;
 	public static final int FZ_IGNORE_SHADE = 2;
+	public static final int FZ_DONT_INTERPOLATE_IMAGES = 4;
 }
@@ -1,20 +1,27 @@
 package com.artifex.mupdf.fitz;
 
-public class DisplayList
+public class DisplayList implements AutoCloseable
 {
 	protected long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative();
 
 	public DisplayList() {
 		pointer = newNative();
+		cleaner = Cleaner.register(this, Cleaner.DISPLAY_LIST, pointer);
 	}
 
 	public native void run(Device device, Matrix ctm, Rect scissor, Cookie cookie);
@@ -22,4 +29,30 @@ public class DisplayList
 	public void run(Device device, Matrix ctm, Cookie cookie) {
 		run(device, ctm, null, cookie);
 	}
+
+	/* As Page.run with a deadline. */
+	public boolean run(Device device, Matrix ctm, Rect scissor, Cookie cookie, long deadlineNanos) {
+		Cookie c = cookie != null ? cookie : new Cookie();
+		try {
+			c.setDeadline(deadlineNanos);
+			run(device, ctm, scissor, c);
+		} finally {
+			c.clearDeadline();
+			if (cookie == null)
+				c.destroy();
+		}
+		return !c.isDeadlineExpired();
+	}
+
+	private native void runWithArrays(Device device, float ctm[], float scissor[], Cookie cookie);
+
+	/* As above with ctm given as the array { a, b, c, d, e, f } and the
+	 * scissor, if any, as { x0, y0, x1, y1 }. The arrays may be reused
+	 * from one call to the next, so that drawing in a loop allocates no
+	 * Matrix and Rect objects. */
+	public void run(Device device, float ctm[], float scissor[], Cookie cookie) {
+		runWithArrays(device, ctm, scissor, cookie);
+	}
+
+	public native StructuredText toStructuredText();
 }
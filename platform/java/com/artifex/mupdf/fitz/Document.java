@@ -1,6 +1,9 @@
 package com.artifex.mupdf.fitz;
 
-public class Document
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+public class Document implements AutoCloseable
 {
 	static {
 		Context.init();
@@ -11,25 +14,75 @@ public class Document
 	public static final String META_INFO_AUTHOR = "info:Author";
 	public static final String META_INFO_TITLE = "info:Title";
 
+	public static final int DEFAULT_READ_AHEAD = 64 << 10;
+
 	protected long pointer;
+	private String path;
+	private ByteBuffer buffer;
+
+	private Cleaner.Ref cleaner;
 
-	protected native void finalize();
+	/* Copies opened from path by the workers of search, kept for the
+	 * next search while idle. */
+	private final ArrayList<Document> searchCopies = new ArrayList<Document>();
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
+		buffer = null;
+		synchronized (searchCopies) {
+			for (Document copy : searchCopies)
+				copy.destroy();
+			searchCopies.clear();
+		}
+	}
+
+	public void close() {
+		destroy();
 	}
 
 	private native long newNativeWithPath(String filename);
 	private native long newNativeWithBuffer(byte buffer[], String magic);
-	// private native long newNativeWithRandomAccessFile(RandomAccessFile file, String magic);
+	private native long newNativeWithByteBuffer(ByteBuffer buffer, int offset, int length, String magic);
+	private native long newNativeWithSource(RandomAccessSource source, String magic, int readAhead);
 
 	public Document(String filename) {
 		pointer = newNativeWithPath(filename);
+		cleaner = Cleaner.register(this, Cleaner.DOCUMENT, pointer);
+		path = filename;
 	}
 
 	public Document(byte buffer[], String magic) {
 		pointer = newNativeWithBuffer(buffer, magic);
+		cleaner = Cleaner.register(this, Cleaner.DOCUMENT, pointer);
+	}
+
+	/* Open the document held between the position and the limit of a
+	 * direct buffer, such as a file mapped with FileChannel.map, reading
+	 * it in place rather than copying it. The buffer must not change
+	 * while the document is open. */
+	public Document(ByteBuffer buffer, String magic) {
+		pointer = newNativeWithByteBuffer(buffer, buffer.position(), buffer.remaining(), magic);
+		cleaner = Cleaner.register(this, Cleaner.DOCUMENT, pointer, 0, buffer);
+		this.buffer = buffer;
+	}
+
+	/* Open a document read from source as it is needed, through a native
+	 * buffer of readAhead bytes. The source is used for as long as the
+	 * document is open, possibly from other threads than this one, but
+	 * never from two threads at once. If the source is a
+	 * ProgressiveSource, the document is loaded progressively: this and
+	 * later calls such as loadPage throw TryLaterException while the
+	 * bytes they need have not arrived. */
+	public Document(RandomAccessSource source, String magic, int readAhead) {
+		pointer = newNativeWithSource(source, magic, readAhead);
+		cleaner = Cleaner.register(this, Cleaner.DOCUMENT, pointer);
+	}
+
+	public Document(RandomAccessSource source, String magic) {
+		this(source, magic, DEFAULT_READ_AHEAD);
 	}
 
 	public native boolean needsPassword();
@@ -41,4 +94,37 @@ public class Document
 	public native String getMetaData(String key);
 
 	public native boolean isUnencryptedPDF();
+
+	/* Search the pages for needle, passing the hits of every page on which
+	 * it was found to the listener, on the calling thread, as they turn
+	 * up. Pages are searched in parallel when the document was opened
+	 * from a file; each worker uses its own copy of the document since
+	 * documents cannot be shared between threads. The copies are kept
+	 * for later searches until this document is destroyed. The pages then
+	 * need not be reported in order. Aborting the cookie in the options (for
+	 * example from the listener) ends the search early. */
+	public void search(String needle, SearchOptions options, SearchListener listener) {
+		if (options == null)
+			options = new SearchOptions();
+		new DocumentSearch(this, path, needle, options, listener).run();
+	}
+
+	/* An idle copy for a search worker, or a newly opened one. */
+	Document takeSearchCopy() {
+		synchronized (searchCopies) {
+			if (!searchCopies.isEmpty())
+				return searchCopies.remove(searchCopies.size() - 1);
+		}
+		return new Document(path);
+	}
+
+	void returnSearchCopy(Document copy) {
+		synchronized (searchCopies) {
+			if (pointer != 0) {
+				searchCopies.add(copy);
+				return;
+			}
+		}
+		copy.destroy();
+	}
 }
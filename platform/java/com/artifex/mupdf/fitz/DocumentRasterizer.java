@@ -0,0 +1,147 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Rasterizes whole documents using a pool of worker threads. A Document
+// may only be used by one thread at a time, so every worker opens its own
+// handle on the file. Pages are delivered to the handler in page order on
+// the calling thread, and at most maxPending pages are rendered ahead of
+// the handler, which bounds memory use regardless of document length.
+//
+// The workers are kept from one run to the next, as every thread that
+// calls into MuPDF gets a context of its own.
+public class DocumentRasterizer
+{
+	public interface PageHandler
+	{
+		/* The pixmap is destroyed when this returns. */
+		public void handlePage(int number, Pixmap pixmap);
+	}
+
+	private final String filename;
+	private final Matrix ctm;
+	private final ColorSpace colorspace;
+	private final ExecutorService executor;
+	private final int maxPending;
+
+	/* Render on the given executor, which is left running afterwards. */
+	public DocumentRasterizer(String filename, Matrix ctm, ColorSpace colorspace, ExecutorService executor, int maxPending) {
+		if (maxPending <= 0)
+			throw new IllegalArgumentException("maxPending must be positive");
+		this.filename = filename;
+		this.ctm = ctm;
+		this.colorspace = colorspace;
+		this.executor = executor;
+		this.maxPending = maxPending;
+	}
+
+	/* Render on a pool of the given size, owned by this rasterizer. The
+	 * pool's threads are daemon threads and exit once idle for a while. */
+	public DocumentRasterizer(String filename, Matrix ctm, ColorSpace colorspace, int parallelism, int maxPending) {
+		this(filename, ctm, colorspace, newPool(parallelism), maxPending);
+	}
+
+	public DocumentRasterizer(String filename, Matrix ctm, ColorSpace colorspace) {
+		this(filename, ctm, colorspace, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	private static ExecutorService newPool(int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive");
+		return new ForkJoinPool(parallelism);
+	}
+
+	public void run(PageHandler handler) {
+		Document doc = new Document(filename);
+		int count;
+		try {
+			count = doc.countPages();
+		} finally {
+			doc.destroy();
+		}
+		run(0, count, handler);
+	}
+
+	/* Render pages first (inclusive) to last (exclusive). */
+	public void run(int first, int last, PageHandler handler) {
+		final ArrayList<Document> handles = new ArrayList<Document>();
+		final ThreadLocal<Document> threadDocument = new ThreadLocal<Document>() {
+			protected Document initialValue() {
+				Document doc = new Document(filename);
+				synchronized (handles) {
+					handles.add(doc);
+				}
+				return doc;
+			}
+		};
+		ArrayDeque<Future<Pixmap>> pending = new ArrayDeque<Future<Pixmap>>();
+		int next = first;
+		int number = first;
+
+		try {
+			while (number < last) {
+				while (next < last && pending.size() < maxPending) {
+					final int pageNumber = next++;
+					pending.addLast(executor.submit(new Callable<Pixmap>() {
+						public Pixmap call() {
+							Page page = threadDocument.get().loadPage(pageNumber);
+							try {
+								return page.toPixmap(ctm, colorspace);
+							} finally {
+								page.destroy();
+							}
+						}
+					}));
+				}
+
+				Pixmap pixmap = await(pending.removeFirst());
+				try {
+					handler.handlePage(number++, pixmap);
+				} finally {
+					pixmap.destroy();
+				}
+			}
+		} finally {
+			// Let in-flight pages finish before their documents go away.
+			while (!pending.isEmpty()) {
+				try {
+					await(pending.removeFirst()).destroy();
+				} catch (RuntimeException e) {
+					// the first failure has already been reported
+				}
+			}
+			synchronized (handles) {
+				for (Document doc : handles)
+					doc.destroy();
+				handles.clear();
+			}
+		}
+	}
+
+	private static Pixmap await(Future<Pixmap> f) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return f.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new RuntimeException("page rendering failed", cause);
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Carries out Document.search. Each worker takes a copy of the document
+// for itself and keeps taking the next page to search until there are
+// none left, queueing the hits for the calling thread, which hands them
+// on to the listener. The calling thread also watches the caller's cookie
+// and passes an abort on to the workers' own cookies, so that the pages
+// being searched at the time are abandoned too.
+class DocumentSearch
+{
+	private static final Object DONE = new Object();
+	private static final long POLL_MILLIS = 50;
+
+	/* Runs the workers of searches that bring no executor of their own.
+	 * Idle threads are kept for a while, and with them their contexts. */
+	private static ExecutorService workers;
+
+	private final Document doc;
+	private final String path;
+	private final String needle;
+	private final SearchOptions options;
+	private final SearchListener listener;
+
+	private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	private final AtomicInteger nextPage = new AtomicInteger();
+	private final AtomicBoolean stopped = new AtomicBoolean(false);
+	private final ArrayList<Cookie> cookies = new ArrayList<Cookie>();
+	private volatile Exception error;
+
+	DocumentSearch(Document doc, String path, String needle, SearchOptions options, SearchListener listener) {
+		this.doc = doc;
+		this.path = path;
+		this.needle = needle;
+		this.options = options;
+		this.listener = listener;
+	}
+
+	void run() {
+		int count = doc.countPages();
+		int first = Math.max(options.firstPage, 0);
+		int last = options.lastPage < 0 ? count - 1 : Math.min(options.lastPage, count - 1);
+		if (first > last)
+			return;
+
+		int threads = Math.min(options.threads, last - first + 1);
+		if (path == null || threads <= 1 || doc.needsPassword())
+			searchSerially(first, last);
+		else
+			searchInParallel(first, last, threads);
+	}
+
+	private boolean aborted() {
+		return options.cookie != null && options.cookie.isAborted();
+	}
+
+	private Rect[] searchPage(Document d, int number, Cookie cookie) {
+		Page page = d.loadPage(number);
+		try {
+			return page.search(needle, options.hitMax, cookie);
+		} finally {
+			page.destroy();
+		}
+	}
+
+	private void searchSerially(int first, int last) {
+		for (int n = first; n <= last && !aborted(); n++) {
+			Rect[] boxes = searchPage(doc, n, options.cookie);
+			if (boxes != null && boxes.length > 0)
+				listener.onSearchHit(new SearchHit(n, boxes));
+		}
+	}
+
+	private void searchInParallel(int first, final int last, int threads) {
+		ExecutorService executor = options.executor != null ? options.executor : workers();
+		RuntimeException failure = null;
+		boolean interrupted = false;
+		int running = 0;
+
+		nextPage.set(first);
+		try {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(new Runnable() {
+					public void run() {
+						work(last);
+					}
+				});
+				running++;
+			}
+		} catch (RuntimeException e) {
+			failure = e;
+			stop();
+		}
+
+		/* Wait for every worker to finish, even after a failure, so that
+		 * none of them is left using the document. */
+		while (running > 0) {
+			Object item;
+			try {
+				item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+				stop();
+				continue;
+			}
+			if (aborted())
+				stop();
+			if (item == null)
+				continue;
+			if (item == DONE) {
+				running--;
+				continue;
+			}
+			if (stopped.get())
+				continue;
+			try {
+				listener.onSearchHit((SearchHit)item);
+			} catch (RuntimeException e) {
+				failure = e;
+				stop();
+			}
+		}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure != null)
+			throw failure;
+		if (error instanceof RuntimeException)
+			throw (RuntimeException)error;
+		if (error != null)
+			throw new RuntimeException("search failed", error);
+	}
+
+	private void work(int last) {
+		Cookie cookie = new Cookie();
+		Document d = null;
+		addCookie(cookie);
+		try {
+			d = doc.takeSearchCopy();
+			while (!stopped.get()) {
+				int n = nextPage.getAndIncrement();
+				if (n > last)
+					break;
+				Rect[] boxes = searchPage(d, n, cookie);
+				if (boxes != null && boxes.length > 0)
+					queue.add(new SearchHit(n, boxes));
+			}
+			doc.returnSearchCopy(d);
+			d = null;
+		} catch (Exception e) {
+			if (error == null)
+				error = e;
+			stop();
+		} finally {
+			/* A copy that failed is not trusted with another search. */
+			if (d != null)
+				d.destroy();
+			removeCookie(cookie);
+			cookie.destroy();
+			queue.add(DONE);
+		}
+	}
+
+	private static synchronized ExecutorService workers() {
+		if (workers == null) {
+			workers = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "mupdf-search");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return workers;
+	}
+
+	private synchronized void addCookie(Cookie cookie) {
+		if (stopped.get())
+			cookie.abort();
+		cookies.add(cookie);
+	}
+
+	private synchronized void removeCookie(Cookie cookie) {
+		cookies.remove(cookie);
+	}
+
+	private synchronized void stop() {
+		if (stopped.getAndSet(true))
+			return;
+		for (Cookie cookie : cookies)
+			cookie.abort();
+	}
+}
@@ -3,8 +3,21 @@ package com.artifex.mupdf.fitz;
 public final class DrawDevice extends NativeDevice
 {
 	private static native long newNative(Pixmap pixmap);
+	private static native long newNativeWithBbox(Pixmap pixmap, int x0, int y0, int x1, int y1);
 
 	public DrawDevice(Pixmap pixmap) {
 		super(newNative(pixmap));
 	}
+
+	/* Only the pixels of the pixmap inside the clip rectangle are ever
+	 * touched, so several devices with disjoint clips may draw into the
+	 * same pixmap from different threads. */
+	public DrawDevice(Pixmap pixmap, RectI clip) {
+		super(newNativeWithBbox(pixmap, clip.x0, clip.y0, clip.x1, clip.y1));
+	}
+
+	/* Rebind the device to draw on another pixmap, so that one device
+	 * can be reused for a series of renders. All clips and groups must
+	 * have been popped before resetting. */
+	public native void reset(Pixmap pixmap);
 }
@@ -1,28 +1,37 @@
 package com.artifex.mupdf.fitz;
 
-public class Font
+public class Font implements AutoCloseable
 {
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative(String name, int index);
 
-	private Font(long p) {
+	Font(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.FONT, pointer);
 	}
 
 	public Font(String name, int index) {
 		pointer = newNative(name, index);
+		cleaner = Cleaner.register(this, Cleaner.FONT, pointer);
 	}
 
 	public Font(String name) {
 		pointer = newNative(name, 0);
+		cleaner = Cleaner.register(this, Cleaner.FONT, pointer);
 	}
 
 	public native String getName();
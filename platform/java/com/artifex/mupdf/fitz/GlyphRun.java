@@ -0,0 +1,29 @@
+package com.artifex.mupdf.fitz;
+
+// The glyphs of one span of a Text object, as returned by
+// Text.getGlyphRuns. Glyph i is drawn with the transform trm, moved so
+// that its origin is at (x[i], y[i]).
+public class GlyphRun
+{
+	public Font font;
+	public Matrix trm;
+	public boolean wmode;
+	public int[] glyphs;
+	public int[] unicodes;
+	public float[] x;
+	public float[] y;
+
+	public GlyphRun(Font font, Matrix trm, boolean wmode, int[] glyphs, int[] unicodes, float[] x, float[] y) {
+		this.font = font;
+		this.trm = trm;
+		this.wmode = wmode;
+		this.glyphs = glyphs;
+		this.unicodes = unicodes;
+		this.x = x;
+		this.y = y;
+	}
+
+	public int getLength() {
+		return glyphs.length;
+	}
+}
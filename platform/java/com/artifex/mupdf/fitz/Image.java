@@ -1,29 +1,38 @@
 package com.artifex.mupdf.fitz;
 
-public class Image
+public class Image implements AutoCloseable
 {
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNativeFromPixmap(Pixmap pixmap);
 	private native long newNativeFromFile(String filename);
 
-	private Image(long p) {
+	Image(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.IMAGE, pointer);
 	}
 
 	public Image(Pixmap pixmap) {
 		pointer = newNativeFromPixmap(pixmap);
+		cleaner = Cleaner.register(this, Cleaner.IMAGE, pointer);
 	}
 
 	public Image(String filename) {
 		pointer = newNativeFromFile(filename);
+		cleaner = Cleaner.register(this, Cleaner.IMAGE, pointer);
 	}
 
 	public native int getWidth();
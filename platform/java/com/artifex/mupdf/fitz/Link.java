@@ -1,18 +1,25 @@
 package com.artifex.mupdf.fitz;
 
-public class Link
+public class Link implements AutoCloseable
 {
 	private long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private Link(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.LINK, pointer);
 	}
 
 	public native Link getNext();
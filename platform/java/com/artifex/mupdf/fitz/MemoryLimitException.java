@@ -0,0 +1,11 @@
+package com.artifex.mupdf.fitz;
+
+// Thrown when an operation run with a Cookie goes over the memory limit
+// set on the cookie. The operation has been aborted; anything it drew
+// before that is left in place.
+public class MemoryLimitException extends RuntimeException
+{
+	MemoryLimitException(String message) {
+		super(message);
+	}
+}
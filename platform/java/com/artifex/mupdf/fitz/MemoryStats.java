@@ -0,0 +1,35 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.Map;
+
+// A snapshot of the memory held by MuPDF, as returned by
+// Context.getMemoryStats. The byte and allocation counts are only kept when
+// memory tracking is enabled (see Context); otherwise they are 0 and
+// tracking is false. The object counts are always kept.
+public class MemoryStats
+{
+	public boolean tracking;
+
+	/* Bytes of native memory currently allocated, and the most that has
+	 * been allocated at any one time. */
+	public long current;
+	public long peak;
+
+	/* Allocations made since the library was loaded, and the rate since
+	 * the previous call to Context.getMemoryStats. */
+	public long allocations;
+	public float allocationsPerSecond;
+
+	/* For each type of Java wrapper, such as "pixmap" or "page", the
+	 * number that have been created and not yet destroyed. */
+	public Map<String, Integer> liveObjects;
+
+	/* The number that were garbage collected without ever having been
+	 * destroyed. A count that keeps growing in a long running process is
+	 * a sign of missing calls to destroy() or close(). */
+	public Map<String, Integer> collectedObjects;
+
+	public String toString() {
+		return "current: " + current + " bytes, peak: " + peak + " bytes, " + allocations + " allocations (" + allocationsPerSecond + "/s), live: " + liveObjects + ", collected: " + collectedObjects;
+	}
+}
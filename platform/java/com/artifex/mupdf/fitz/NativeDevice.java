@@ -5,8 +5,6 @@ public class NativeDevice extends Device
 	private long nativeInfo;
 	private Object nativeResource;
 
-	protected native void finalize();
-
 	public void destroy() {
 		super.destroy();
 		nativeInfo = 0;
@@ -17,6 +15,12 @@ public class NativeDevice extends Device
 		super(p);
 	}
 
+	/* The native info is released along with the device, and the resource
+	 * it refers to is kept alive until then. */
+	Cleaner.Ref register(long p) {
+		return Cleaner.register(this, Cleaner.NATIVE_DEVICE, p, nativeInfo, nativeResource);
+	}
+
 	public native final void fillPath(Path path, boolean evenOdd, Matrix ctm, ColorSpace cs, float color[], float alpha);
 	public native final void strokePath(Path path, StrokeState stroke, Matrix ctm, ColorSpace cs, float color[], float alpha);
 	public native final void clipPath(Path path, boolean evenOdd, Matrix ctm);
@@ -1,17 +1,24 @@
 package com.artifex.mupdf.fitz;
 
-public class Outline
+public class Outline implements AutoCloseable
 {
 	private long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private Outline(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.OUTLINE, pointer);
 	}
 }
@@ -1,26 +1,54 @@
 package com.artifex.mupdf.fitz;
 
-public class Page
+public class Page implements AutoCloseable
 {
 	private long pointer;
 	private Annotation nativeAnnots[];
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 		nativeAnnots = null;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private Page(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.PAGE, pointer);
 		nativeAnnots = null;
 	}
 
 	public native Rect getBounds();
 
-	public native Pixmap toPixmap(Matrix ctm, ColorSpace colorspace);
+	private native Pixmap toPixmapWithMatrix(float a, float b, float c, float d, float e, float f, ColorSpace colorspace);
+
+	/* The matrix may also be given as its six elements, which saves
+	 * allocating a Matrix for every page drawn. */
+	public Pixmap toPixmap(float a, float b, float c, float d, float e, float f, ColorSpace colorspace) {
+		return toPixmapWithMatrix(a, b, c, d, e, f, colorspace);
+	}
+
+	public Pixmap toPixmap(Matrix ctm, ColorSpace colorspace) {
+		return toPixmapWithMatrix(ctm.a, ctm.b, ctm.c, ctm.d, ctm.e, ctm.f, colorspace);
+	}
+
+	public native StructuredText toStructuredText();
+
+	/* Return the boxes of at most hitMax hits of needle on the page.
+	 * If the cookie is aborted while the text is being extracted, no
+	 * hits are returned. */
+	public native Rect[] search(String needle, int hitMax, Cookie cookie);
+
+	public Rect[] search(String needle) {
+		return search(needle, SearchOptions.DEFAULT_HIT_MAX, null);
+	}
 
 	public native void run(Device dev, Matrix ctm, Cookie cookie);
 	public native void runPageContents(Device dev, Matrix ctm, Cookie cookie);
@@ -30,6 +58,31 @@ public class Page
 		run(dev, ctm, null);
 	}
 
+	/* Run the page, giving up at deadlineNanos (as System.nanoTime()).
+	 * Returns false if the deadline cut it short, in which case the device
+	 * has received only part of the page; with a DrawDevice, the pixmap
+	 * holds what was drawn by then. The cookie may be null. */
+	public boolean run(Device dev, Matrix ctm, Cookie cookie, long deadlineNanos) {
+		Cookie c = cookie != null ? cookie : new Cookie();
+		try {
+			c.setDeadline(deadlineNanos);
+			run(dev, ctm, c);
+		} finally {
+			c.clearDeadline();
+			if (cookie == null)
+				c.destroy();
+		}
+		return !c.isDeadlineExpired();
+	}
+
+	private native void runWithArray(Device dev, float ctm[], Cookie cookie);
+
+	/* As above with ctm given as the array { a, b, c, d, e, f }, which
+	 * may be reused from one call to the next. */
+	public void run(Device dev, float ctm[], Cookie cookie) {
+		runWithArray(dev, ctm, cookie);
+	}
+
 	// FIXME: Later
 	public native Link[] getLinks();
 
@@ -1,29 +1,46 @@
 package com.artifex.mupdf.fitz;
 
-public class Path implements PathWalker
+public class Path implements PathWalker, AutoCloseable
 {
-	private long pointer;
+	/* Verbs as returned by getCommands. In the array returned by
+	 * getCoordinates, each verb is followed by the points it takes:
+	 * one for MOVETO and LINETO, three for CURVETO, none for CLOSEPATH. */
+	public static final byte MOVETO = 'M';
+	public static final byte LINETO = 'L';
+	public static final byte CURVETO = 'C';
+	public static final byte CLOSEPATH = 'Z';
 
-	protected native void finalize();
+	long pointer;
+
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative();
 	private native long cloneNative();
 
 	public Path() {
 		pointer = newNative();
+		cleaner = Cleaner.register(this, Cleaner.PATH, pointer);
 	}
 
-	private Path(long p) {
+	Path(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.PATH, pointer);
 	}
 
 	public Path(Path old) {
 		pointer = old.cloneNative();
+		cleaner = Cleaner.register(this, Cleaner.PATH, pointer);
 	}
 
 	public native Point currentPoint();
@@ -60,4 +77,12 @@ public class Path implements PathWalker
 	public native Rect getBounds(StrokeState stroke, Matrix ctm);
 
 	public native void walk(PathWalker walker);
+
+	/* The whole path at once, in the same form as walk would give it. */
+	public native byte[] getCommands();
+	public native float[] getCoordinates(Matrix ctm);
+
+	public float[] getCoordinates() {
+		return getCoordinates(null);
+	}
 }
@@ -1,24 +1,43 @@
 package com.artifex.mupdf.fitz;
 
-public class Pixmap
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+public class Pixmap implements AutoCloseable
 {
 	private long pointer;
 
-	protected native void finalize();
+	/* The samples, when they are held in a buffer supplied by the
+	 * caller rather than in memory owned by the native pixmap. */
+	private ByteBuffer nativeSamples;
+
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
+		nativeSamples = null;
+	}
+
+	public void close() {
+		destroy();
 	}
 
 	private native long newNative(ColorSpace cs, int x, int y, int w, int h);
+	private native long newNativeWithBuffer(ColorSpace cs, int x, int y, int w, int h, ByteBuffer buffer);
+	private native ByteBuffer newNativeSamplesBuffer();
 
 	private Pixmap(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.PIXMAP, pointer);
 	}
 
 	public Pixmap(ColorSpace colorspace, int x, int y, int w, int h) {
 		pointer = newNative(colorspace, x, y, w, h);
+		cleaner = Cleaner.register(this, Cleaner.PIXMAP, pointer);
 	}
 
 	public Pixmap(ColorSpace colorspace, int w, int h) {
@@ -29,6 +48,30 @@ public class Pixmap
 		this(colorspace, (int)rect.x0, (int)rect.y0, (int)(rect.x1 - rect.x0), (int)(rect.y1 - rect.y0));
 	}
 
+	/* Create a pixmap that renders into caller owned memory. The buffer
+	 * must be direct and hold at least w * h * (colorspace components + 1)
+	 * bytes, starting from its first byte. The pixmap keeps a reference
+	 * to the buffer, so the buffer may be reused once the pixmap has
+	 * been destroyed. */
+	public Pixmap(ColorSpace colorspace, int x, int y, int w, int h, ByteBuffer buffer) {
+		pointer = newNativeWithBuffer(colorspace, x, y, w, h, buffer);
+		cleaner = Cleaner.register(this, Cleaner.PIXMAP, pointer);
+
+		/* Only the samples, however the caller has positioned the buffer. */
+		ByteBuffer samples = buffer.duplicate();
+		samples.clear();
+		samples.limit(getStride() * h);
+		nativeSamples = samples.slice();
+	}
+
+	public Pixmap(ColorSpace colorspace, int w, int h, ByteBuffer buffer) {
+		this(colorspace, 0, 0, w, h, buffer);
+	}
+
+	public Pixmap(ColorSpace colorspace, RectI rect, ByteBuffer buffer) {
+		this(colorspace, rect.x0, rect.y0, rect.x1 - rect.x0, rect.y1 - rect.y0, buffer);
+	}
+
 	public native void clear();
 	public native void clearWithValue(int value);
 
@@ -44,6 +87,28 @@ public class Pixmap
 	public native byte[] getSamples();
 	public native int[] getPixels(); /* only valid for RGB or BGR pixmaps */
 
+	/* The buffers returned by getSamplesBuffer and getPixelsBuffer alias
+	 * the pixmap's own sample memory rather than copying it. Each buffer
+	 * holds a reference of its own to the native pixmap, so the samples
+	 * stay valid for as long as the buffer, or a view made from it, is
+	 * reachable, even after this Pixmap has been destroyed. A destroyed
+	 * Pixmap hands out no more buffers. */
+	public ByteBuffer getSamplesBuffer() {
+		if (pointer == 0)
+			throw new RuntimeException("pixmap has been destroyed");
+		if (nativeSamples != null)
+			return nativeSamples.duplicate();
+		ByteBuffer samples = newNativeSamplesBuffer();
+		Cleaner.register(samples, Cleaner.PIXMAP, pointer);
+		return samples;
+	}
+
+	public IntBuffer getPixelsBuffer() {
+		if (getNumberOfComponents() != 4)
+			throw new RuntimeException("invalid colorspace for getPixelsBuffer");
+		return getSamplesBuffer().order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
 	public void clear(int value) {
 		clearWithValue(value);
 	}
@@ -0,0 +1,62 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+// A bounded pool of idle pixmaps, keyed by colorspace and size. Pixmaps
+// handed out by acquire are not cleared; callers are expected to clear
+// them before drawing. When more than maxSize pixmaps are idle, the least
+// recently released ones are destroyed.
+public class PixmapPool
+{
+	private static class Entry
+	{
+		ColorSpace colorspace;
+		int w, h;
+		Pixmap pixmap;
+
+		Entry(ColorSpace colorspace, int w, int h, Pixmap pixmap) {
+			this.colorspace = colorspace;
+			this.w = w;
+			this.h = h;
+			this.pixmap = pixmap;
+		}
+	}
+
+	private final int maxSize;
+	private final LinkedList<Entry> idle;
+
+	public PixmapPool(int maxSize) {
+		this.maxSize = maxSize;
+		this.idle = new LinkedList<Entry>();
+	}
+
+	public synchronized Pixmap acquire(ColorSpace colorspace, int w, int h) {
+		Iterator<Entry> it = idle.iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.colorspace == colorspace && entry.w == w && entry.h == h) {
+				it.remove();
+				return entry.pixmap;
+			}
+		}
+		return new Pixmap(colorspace, w, h);
+	}
+
+	public synchronized void release(Pixmap pixmap) {
+		if (pixmap == null)
+			return;
+		idle.addFirst(new Entry(pixmap.getColorSpace(), pixmap.getWidth(), pixmap.getHeight(), pixmap));
+		while (idle.size() > maxSize)
+			idle.removeLast().pixmap.destroy();
+	}
+
+	public synchronized int size() {
+		return idle.size();
+	}
+
+	public synchronized void clear() {
+		while (!idle.isEmpty())
+			idle.removeFirst().pixmap.destroy();
+	}
+}
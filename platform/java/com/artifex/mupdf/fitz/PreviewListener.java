@@ -0,0 +1,8 @@
+package com.artifex.mupdf.fitz;
+
+public interface PreviewListener
+{
+	/* The preview covers the same area as the full render, scaled down
+	 * by scale, and belongs to the listener from then on. */
+	public void onPreview(Pixmap preview, float scale);
+}
@@ -0,0 +1,97 @@
+package com.artifex.mupdf.fitz;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+// A ProgressiveSource holding the bytes of a document as they arrive, in
+// any order, for example in answer to ranged requests to a server. The
+// downloader writes each piece as it comes in, and the listener hears of
+// it, so that pages that failed with TryLaterException can be retried.
+public class ProgressiveBuffer implements ProgressiveSource
+{
+	public interface Listener
+	{
+		/* Called on the writing thread once the bytes from position up
+		 * to position + length have arrived. */
+		public void onDataAvailable(long position, long length);
+	}
+
+	private final byte[] data;
+	private final TreeMap<Long, Long> ranges = new TreeMap<Long, Long>();
+	private long available;
+	private long wanted = -1;
+	private Listener listener;
+
+	public ProgressiveBuffer(int length) {
+		data = new byte[length];
+	}
+
+	public synchronized void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public void write(long position, byte[] buf, int offset, int length) {
+		Listener l;
+		synchronized (this) {
+			if (position < 0 || position + length > data.length)
+				throw new IndexOutOfBoundsException("write beyond end of document");
+			System.arraycopy(buf, offset, data, (int)position, length);
+			addRange(position, position + length);
+			l = listener;
+		}
+		if (l != null && length > 0)
+			l.onDataAvailable(position, length);
+	}
+
+	public synchronized long getAvailable() {
+		return available;
+	}
+
+	public synchronized boolean isComplete() {
+		return available == data.length;
+	}
+
+	/* The position of the last read that had to be put off, or -1. A
+	 * downloader that can fetch ranges should fetch from here next. */
+	public synchronized long getWantedPosition() {
+		return wanted;
+	}
+
+	public long size() {
+		return data.length;
+	}
+
+	public synchronized int read(long position, ByteBuffer buffer) {
+		if (position >= data.length)
+			return -1;
+		Map.Entry<Long, Long> range = ranges.floorEntry(position);
+		if (range == null || range.getValue() <= position) {
+			wanted = position;
+			return TRY_LATER;
+		}
+		int n = (int)Math.min(buffer.remaining(), range.getValue() - position);
+		buffer.put(data, (int)position, n);
+		return n;
+	}
+
+	/* Merge the range with any it touches, keeping them disjoint. */
+	private void addRange(long start, long end) {
+		Map.Entry<Long, Long> e = ranges.floorEntry(start);
+		if (e != null && e.getValue() >= start) {
+			start = e.getKey();
+			end = Math.max(end, e.getValue());
+		}
+		e = ranges.ceilingEntry(start);
+		while (e != null && e.getKey() <= end) {
+			end = Math.max(end, e.getValue());
+			ranges.remove(e.getKey());
+			e = ranges.ceilingEntry(start);
+		}
+		ranges.put(start, end);
+
+		available = 0;
+		for (Map.Entry<Long, Long> r : ranges.entrySet())
+			available += r.getValue() - r.getKey();
+	}
+}
@@ -0,0 +1,84 @@
+package com.artifex.mupdf.fitz;
+
+// Renders a display list twice: first a quick draft at a fraction of the
+// requested size, handed to a PreviewListener so that a viewer has
+// something to show at once, then the full quality pixmap. The draft is
+// drawn without anti-aliasing and without image interpolation, and since
+// images are decoded at the size they are drawn, large images are also
+// decoded subsampled for it. Both passes run from the same display list,
+// so the page is only interpreted once.
+//
+// The anti-aliasing level is lowered for the calling thread only, and is
+// restored before the full quality pass starts.
+public class ProgressiveRenderer
+{
+	public static final float DEFAULT_PREVIEW_SCALE = 0.25f;
+
+	private final float previewScale;
+
+	/* previewScale is the size of the draft relative to the full render,
+	 * in the range (0, 1]. */
+	public ProgressiveRenderer(float previewScale) {
+		if (!(previewScale > 0 && previewScale <= 1))
+			throw new IllegalArgumentException("preview scale must be in the range (0, 1]");
+		this.previewScale = previewScale;
+	}
+
+	public ProgressiveRenderer() {
+		this(DEFAULT_PREVIEW_SCALE);
+	}
+
+	public Pixmap render(Page page, Matrix ctm, ColorSpace colorspace, Cookie cookie, PreviewListener listener) {
+		Rect bounds = page.getBounds().transform(ctm);
+		DisplayList list = TiledRenderer.record(page);
+		try {
+			return render(list, bounds, ctm, colorspace, cookie, listener);
+		} finally {
+			list.destroy();
+		}
+	}
+
+	/* Render the list into a new pixmap covering the given area (in
+	 * device space, i.e. after ctm is applied), calling the listener with
+	 * the draft first. Both pixmaps are cleared to white, as
+	 * Page.toPixmap does. Returns null, without starting the full quality
+	 * pass, if the cookie was aborted while the draft was drawn. */
+	public Pixmap render(DisplayList list, Rect area, Matrix ctm, ColorSpace colorspace, Cookie cookie, PreviewListener listener) {
+		if (listener != null && previewScale < 1) {
+			Matrix scale = new Matrix(previewScale);
+			Pixmap preview = draw(list, new Rect(area).transform(scale), new Matrix(ctm, scale), colorspace, cookie, true);
+			listener.onPreview(preview, previewScale);
+			if (cookie != null && cookie.isAborted())
+				return null;
+		}
+		return draw(list, area, ctm, colorspace, cookie, false);
+	}
+
+	private static Pixmap draw(DisplayList list, Rect area, Matrix ctm, ColorSpace colorspace, Cookie cookie, boolean draft) {
+		int x0 = (int)Math.floor(area.x0);
+		int y0 = (int)Math.floor(area.y0);
+		int x1 = (int)Math.ceil(area.x1);
+		int y1 = (int)Math.ceil(area.y1);
+		Pixmap pixmap = new Pixmap(colorspace, x0, y0, x1 - x0, y1 - y0);
+		int aa = draft ? Context.getAntiAliasLevel() : 0;
+		DrawDevice dev = null;
+		try {
+			pixmap.clear(255);
+			dev = new DrawDevice(pixmap);
+			if (draft) {
+				dev.enableDeviceHints(Device.FZ_DONT_INTERPOLATE_IMAGES);
+				Context.setAntiAliasLevel(0);
+			}
+			list.run(dev, ctm, new Rect(x0, y0, x1, y1), cookie);
+		} catch (RuntimeException e) {
+			pixmap.destroy();
+			throw e;
+		} finally {
+			if (draft)
+				Context.setAntiAliasLevel(aa);
+			if (dev != null)
+				dev.destroy();
+		}
+		return pixmap;
+	}
+}
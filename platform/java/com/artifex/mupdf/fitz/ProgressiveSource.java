@@ -0,0 +1,15 @@
+package com.artifex.mupdf.fitz;
+
+// A RandomAccessSource whose bytes are still arriving. Reading bytes that
+// are not there yet makes whatever needed them throw TryLaterException,
+// which is then worth retrying once more of the document has arrived.
+// For a linearized PDF, the first page can be loaded as soon as its own
+// bytes are in.
+public interface ProgressiveSource extends RandomAccessSource
+{
+	/* Returned by read when the bytes at position have not arrived. */
+	public static final int TRY_LATER = -2;
+
+	/* size() must return the final length of the document, for example
+	 * from the Content-Length of the download, before it has arrived. */
+}
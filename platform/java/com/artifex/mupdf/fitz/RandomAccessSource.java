@@ -0,0 +1,15 @@
+package com.artifex.mupdf.fitz;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// The bytes of a document, read on demand at arbitrary offsets. The
+// buffer passed to read refers to native memory and must not be kept.
+public interface RandomAccessSource
+{
+	public long size() throws IOException;
+
+	/* Read up to buffer.remaining() bytes starting at position into the
+	 * buffer, returning the number of bytes read, or -1 at the end. */
+	public int read(long position, ByteBuffer buffer) throws IOException;
+}
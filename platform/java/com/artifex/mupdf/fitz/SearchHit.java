@@ -0,0 +1,18 @@
+package com.artifex.mupdf.fitz;
+
+// The hits of a search on one page. There is one box per line of each
+// match, in page space.
+public class SearchHit
+{
+	public int page;
+	public Rect[] boxes;
+
+	public SearchHit(int page, Rect[] boxes) {
+		this.page = page;
+		this.boxes = boxes;
+	}
+
+	public String toString() {
+		return "page " + page + ": " + boxes.length + " hits";
+	}
+}
@@ -0,0 +1,6 @@
+package com.artifex.mupdf.fitz;
+
+public interface SearchListener
+{
+	public void onSearchHit(SearchHit hit);
+}
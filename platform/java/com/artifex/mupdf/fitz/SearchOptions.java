@@ -0,0 +1,26 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.concurrent.ExecutorService;
+
+public class SearchOptions
+{
+	public static final int DEFAULT_HIT_MAX = 500;
+
+	/* The range of pages to search; lastPage -1 means the last page */
+	public int firstPage = 0;
+	public int lastPage = -1;
+
+	/* The most hits reported for a single page */
+	public int hitMax = DEFAULT_HIT_MAX;
+
+	/* The number of pages searched at once */
+	public int threads = Runtime.getRuntime().availableProcessors();
+
+	/* Where to run the workers, which is left running afterwards. By
+	 * default they run on a pool of daemon threads shared by all
+	 * searches. */
+	public ExecutorService executor = null;
+
+	/* Abort this to end the search early */
+	public Cookie cookie = null;
+}
@@ -1,17 +1,24 @@
 package com.artifex.mupdf.fitz;
 
-public class Shade
+public class Shade implements AutoCloseable
 {
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
-	private Shade(long p) {
+	public void close() {
+		destroy();
+	}
+
+	Shade(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.SHADE, pointer);
 	}
 }
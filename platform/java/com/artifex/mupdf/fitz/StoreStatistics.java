@@ -0,0 +1,48 @@
+package com.artifex.mupdf.fitz;
+
+// Statistics for one kind of item in the resource store, as returned by
+// Context.getStoreStatistics. The hit, miss and eviction counts run from
+// the last call to Context.resetStoreStatistics.
+public class StoreStatistics
+{
+	public static final String IMAGE = "image";
+	public static final String DECODED_IMAGE = "decoded image";
+	public static final String FONT = "font";
+	public static final String COLORSPACE = "colorspace";
+	public static final String SHADE = "shade";
+	public static final String PATTERN = "pattern";
+	public static final String XOBJECT = "xobject";
+	public static final String CMAP = "cmap";
+	public static final String OTHER = "other";
+
+	/* Rendered glyphs are kept in a cache of their own, outside the
+	 * store, but are reported alongside it. */
+	public static final String GLYPH = "glyph";
+
+	public String type;
+	public int count;
+	public long size;
+	public int hits;
+	public int misses;
+	public int evictions;
+
+	public StoreStatistics(String type, int count, long size, int hits, int misses, int evictions) {
+		this.type = type;
+		this.count = count;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+	}
+
+	/* The fraction of lookups that found the item, or 0 if there were
+	 * none. */
+	public float getHitRate() {
+		int lookups = hits + misses;
+		return lookups > 0 ? (float)hits / lookups : 0;
+	}
+
+	public String toString() {
+		return type + ": " + count + " items, " + size + " bytes, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+}
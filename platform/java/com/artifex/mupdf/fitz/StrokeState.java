@@ -1,6 +1,6 @@
 package com.artifex.mupdf.fitz;
 
-public class StrokeState
+public class StrokeState implements AutoCloseable
 {
 	public static final int FZ_LINECAP_BUTT = 0;
 	public static final int FZ_LINECAP_ROUND = 1;
@@ -12,15 +12,21 @@ public class StrokeState
 	public static final int FZ_LINEJOIN_BEVEL = 2;
 	public static final int FZ_LINEJOIN_MITER_XPS = 3;
 
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative(int startCap, int dashCap, int endCap, int lineJoin, float lineWidth, float miterLimit,
 			float dashPhase, float dash[]);
 
@@ -29,17 +35,20 @@ public class StrokeState
 	// should therefore be considered const. This is fine as we don't
 	// currently provide mechanisms for changing individual elements
 	// of the StrokeState.
-	private StrokeState(long p) {
+	StrokeState(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.STROKE_STATE, pointer);
 	}
 
 	public StrokeState(int startCap, int endCap, int lineJoin, float lineWidth, float miterLimit) {
 		pointer = newNative(startCap, 0, endCap, lineJoin, lineWidth, miterLimit, 0, null);
+		cleaner = Cleaner.register(this, Cleaner.STROKE_STATE, pointer);
 	}
 
 	public StrokeState(int startCap, int dashCap, int endCap, int lineJoin, float lineWidth, float miterLimit,
 			float dashPhase, float dash[]) {
 		pointer = newNative(startCap, dashCap, endCap, lineJoin, lineWidth, miterLimit, dashPhase, dash);
+		cleaner = Cleaner.register(this, Cleaner.STROKE_STATE, pointer);
 	}
 
 	public native void adjustRectForStroke(Rect rect, Matrix ctm);
@@ -0,0 +1,77 @@
+package com.artifex.mupdf.fitz;
+
+// The text of a page in a flat, columnar form, as returned by
+// Page.toStructuredText and DisplayList.toStructuredText. Every character
+// of the page is listed in reading order; lines and blocks are given as
+// offsets into the character and line arrays. Boxes are stored as four
+// consecutive floats (x0, y0, x1, y1) per entry. As in the plain text
+// output, a line is just the characters of its spans, in order.
+public class StructuredText
+{
+	/* Unicode value and bounding box of every character */
+	public int[] chars;
+	public float[] charBoxes;
+
+	/* Line i holds the characters lineStarts[i] to lineStarts[i+1]-1 */
+	public int[] lineStarts;
+	public float[] lineBoxes;
+
+	/* Block i holds the lines blockStarts[i] to blockStarts[i+1]-1 */
+	public int[] blockStarts;
+	public float[] blockBoxes;
+
+	public StructuredText(int[] chars, float[] charBoxes, int[] lineStarts, float[] lineBoxes, int[] blockStarts, float[] blockBoxes) {
+		this.chars = chars;
+		this.charBoxes = charBoxes;
+		this.lineStarts = lineStarts;
+		this.lineBoxes = lineBoxes;
+		this.blockStarts = blockStarts;
+		this.blockBoxes = blockBoxes;
+	}
+
+	public int getCharCount() {
+		return chars.length;
+	}
+
+	public int getLineCount() {
+		return lineStarts.length - 1;
+	}
+
+	public int getBlockCount() {
+		return blockStarts.length - 1;
+	}
+
+	public Rect getCharBox(int i) {
+		return new Rect(charBoxes[i*4], charBoxes[i*4+1], charBoxes[i*4+2], charBoxes[i*4+3]);
+	}
+
+	public Rect getLineBox(int i) {
+		return new Rect(lineBoxes[i*4], lineBoxes[i*4+1], lineBoxes[i*4+2], lineBoxes[i*4+3]);
+	}
+
+	public Rect getBlockBox(int i) {
+		return new Rect(blockBoxes[i*4], blockBoxes[i*4+1], blockBoxes[i*4+2], blockBoxes[i*4+3]);
+	}
+
+	public String getLine(int i) {
+		StringBuilder sb = new StringBuilder();
+		for (int c = lineStarts[i]; c < lineStarts[i+1]; c++)
+			sb.appendCodePoint(chars[c]);
+		return sb.toString();
+	}
+
+	/* The text with a newline after every line and an empty line after
+	 * every block, the same as the plain text output. */
+	public String getText() {
+		StringBuilder sb = new StringBuilder(chars.length + lineStarts.length + blockStarts.length);
+		for (int b = 0; b < getBlockCount(); b++) {
+			for (int l = blockStarts[b]; l < blockStarts[b+1]; l++) {
+				for (int c = lineStarts[l]; c < lineStarts[l+1]; c++)
+					sb.appendCodePoint(chars[c]);
+				sb.append('\n');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
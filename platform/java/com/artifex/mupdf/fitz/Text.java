@@ -1,29 +1,38 @@
 package com.artifex.mupdf.fitz;
 
-public class Text implements TextWalker
+public class Text implements TextWalker, AutoCloseable
 {
-	private long pointer;
+	long pointer;
 
-	protected native void finalize();
+	private Cleaner.Ref cleaner;
 
 	public void destroy() {
-		finalize();
+		if (cleaner != null)
+			cleaner.clean();
+		cleaner = null;
 		pointer = 0;
 	}
 
+	public void close() {
+		destroy();
+	}
+
 	private native long newNative();
 	private native long cloneNative(Text old);
 
-	private Text(long p) {
+	Text(long p) {
 		pointer = p;
+		cleaner = Cleaner.register(this, Cleaner.TEXT, pointer);
 	}
 
 	public Text(Text old) {
 		pointer = cloneNative(old);
+		cleaner = Cleaner.register(this, Cleaner.TEXT, pointer);
 	}
 
 	public Text() {
 		pointer = newNative();
+		cleaner = Cleaner.register(this, Cleaner.TEXT, pointer);
 	}
 
 	public native void showGlyph(Font font, Matrix trm, int glyph, int unicode, boolean wmode);
@@ -40,4 +49,8 @@ public class Text implements TextWalker
 	}
 
 	public native void walk(TextWalker walker);
+
+	/* All the glyphs, one run per span, without calling back into Java
+	 * for each glyph as walk does. */
+	public native GlyphRun[] getGlyphRuns();
 }
@@ -0,0 +1,146 @@
+package com.artifex.mupdf.fitz;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Renders a display list into one shared pixmap by splitting the output
+// into tiles and drawing the tiles in parallel on an ExecutorService.
+// Each tile gets its own DrawDevice clipped to the tile, so the workers
+// never write to the same pixels. The display list may be shared between
+// threads; the page it was recorded from may not, so pages are recorded
+// once on the calling thread before the tiles are handed out.
+public class TiledRenderer
+{
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	private final ExecutorService executor;
+	private final int tileWidth;
+	private final int tileHeight;
+
+	public TiledRenderer(ExecutorService executor, int tileWidth, int tileHeight) {
+		if (tileWidth <= 0 || tileHeight <= 0)
+			throw new IllegalArgumentException("tile size must be positive");
+		this.executor = executor;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+	}
+
+	public TiledRenderer(ExecutorService executor) {
+		this(executor, DEFAULT_TILE_SIZE, DEFAULT_TILE_SIZE);
+	}
+
+	public static DisplayList record(Page page) {
+		DisplayList list = new DisplayList();
+		DisplayListDevice dev = new DisplayListDevice(list);
+		try {
+			page.run(dev, new Matrix());
+		} finally {
+			dev.destroy();
+		}
+		return list;
+	}
+
+	public Pixmap render(Page page, Matrix ctm, ColorSpace colorspace, Cookie cookie) {
+		Rect bounds = page.getBounds().transform(ctm);
+		DisplayList list = record(page);
+		try {
+			return render(list, bounds, ctm, colorspace, cookie);
+		} finally {
+			list.destroy();
+		}
+	}
+
+	public Pixmap render(Page page, Matrix ctm, ColorSpace colorspace) {
+		return render(page, ctm, colorspace, null);
+	}
+
+	/* Render the list into a new pixmap covering the given area (in
+	 * device space, i.e. after ctm is applied). The pixmap is cleared to
+	 * white first, as Page.toPixmap does. */
+	public Pixmap render(DisplayList list, Rect area, Matrix ctm, ColorSpace colorspace, Cookie cookie) {
+		int x0 = (int)Math.floor(area.x0);
+		int y0 = (int)Math.floor(area.y0);
+		int x1 = (int)Math.ceil(area.x1);
+		int y1 = (int)Math.ceil(area.y1);
+		Pixmap pixmap = new Pixmap(colorspace, x0, y0, x1 - x0, y1 - y0);
+		try {
+			pixmap.clear(255);
+			render(list, ctm, pixmap, cookie);
+		} catch (RuntimeException e) {
+			pixmap.destroy();
+			throw e;
+		}
+		return pixmap;
+	}
+
+	/* Render the list into an existing pixmap. The pixmap is not cleared.
+	 * Does not return until every tile has finished drawing, even if one
+	 * of them fails; tiles that have not started yet are skipped. */
+	public void render(final DisplayList list, final Matrix ctm, final Pixmap pixmap, final Cookie cookie) {
+		int x0 = pixmap.getX();
+		int y0 = pixmap.getY();
+		int x1 = x0 + pixmap.getWidth();
+		int y1 = y0 + pixmap.getHeight();
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		ArrayList<Future<Void>> tiles = new ArrayList<Future<Void>>();
+		Throwable error = null;
+
+		for (int y = y0; y < y1; y += tileHeight) {
+			for (int x = x0; x < x1; x += tileWidth) {
+				final RectI tile = new RectI(x, y, Math.min(x + tileWidth, x1), Math.min(y + tileHeight, y1));
+				tiles.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						if (failed.get())
+							return null;
+						try {
+							renderTile(list, ctm, pixmap, tile, cookie);
+						} catch (Exception e) {
+							failed.set(true);
+							throw e;
+						}
+						return null;
+					}
+				}));
+			}
+		}
+
+		boolean interrupted = false;
+		for (Future<Void> f : tiles) {
+			while (true) {
+				try {
+					f.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					failed.set(true);
+				} catch (ExecutionException e) {
+					if (error == null)
+						error = e.getCause();
+					break;
+				}
+			}
+		}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (error instanceof RuntimeException)
+			throw (RuntimeException)error;
+		if (error != null)
+			throw new RuntimeException("tiled rendering failed", error);
+		if (interrupted)
+			throw new RuntimeException("tiled rendering interrupted");
+	}
+
+	private static void renderTile(DisplayList list, Matrix ctm, Pixmap pixmap, RectI tile, Cookie cookie) {
+		DrawDevice dev = new DrawDevice(pixmap, tile);
+		try {
+			list.run(dev, ctm, new Rect(tile), cookie);
+		} finally {
+			dev.destroy();
+		}
+	}
+}
@@ -1,6 +1,6 @@
 package com.artifex.mupdf.fitz;
 
-public class TryLaterException extends Exception
+public class TryLaterException extends RuntimeException
 {
 	TryLaterException(String message) {
 		super(message);
@@ -46,6 +46,8 @@ static inline jlong jlong_cast(const void *p)
 /* All the cached classes/mids/fids we need. */
 
 static jclass cls_Annot;
+static jclass cls_BatchedDevice;
+static jclass cls_Buffer;
 static jclass cls_ColorSpace;
 static jclass cls_Cookie;
 static jclass cls_Device;
@@ -53,10 +55,13 @@ static jclass cls_DisplayList;
 static jclass cls_Document;
 static jclass cls_Exception;
 static jclass cls_Font;
+static jclass cls_GlyphRun;
 static jclass cls_Image;
 static jclass cls_Link;
 static jclass cls_Matrix;
+static jclass cls_MemoryLimitException;
 static jclass cls_NativeDevice;
+static jclass cls_NullPointerException;
 static jclass cls_Object;
 static jclass cls_OutOfMemoryError;
 static jclass cls_Outline;
@@ -65,9 +70,13 @@ static jclass cls_Path;
 static jclass cls_PathWalker;
 static jclass cls_Pixmap;
 static jclass cls_Point;
+static jclass cls_ProgressiveSource;
+static jclass cls_RandomAccessSource;
 static jclass cls_Rect;
 static jclass cls_Shade;
+static jclass cls_StoreStatistics;
 static jclass cls_StrokeState;
+static jclass cls_StructuredText;
 static jclass cls_Text;
 static jclass cls_TextWalker;
 static jclass cls_TryLaterException;
@@ -103,6 +112,8 @@ static jfieldID fid_StrokeState_pointer;
 static jfieldID fid_Text_pointer;
 
 static jmethodID mid_Annot_init;
+static jmethodID mid_BatchedDevice_processBatch;
+static jmethodID mid_Buffer_clear;
 static jmethodID mid_ColorSpace_fromPointer;
 static jmethodID mid_ColorSpace_init;
 static jmethodID mid_Device_beginGroup;
@@ -126,6 +137,7 @@ static jmethodID mid_Device_popClip;
 static jmethodID mid_Device_strokePath;
 static jmethodID mid_Device_strokeText;
 static jmethodID mid_Font_init;
+static jmethodID mid_GlyphRun_init;
 static jmethodID mid_Image_init;
 static jmethodID mid_Matrix_init;
 static jmethodID mid_Object_toString;
@@ -138,12 +150,17 @@ static jmethodID mid_PathWalker_moveTo;
 static jmethodID mid_Path_init;
 static jmethodID mid_Pixmap_init;
 static jmethodID mid_Point_init;
+static jmethodID mid_RandomAccessSource_read;
+static jmethodID mid_RandomAccessSource_size;
 static jmethodID mid_Rect_init;
 static jmethodID mid_Shade_init;
+static jmethodID mid_StoreStatistics_init;
 static jmethodID mid_StrokeState_init;
+static jmethodID mid_StructuredText_init;
 static jmethodID mid_Text_init;
 static jmethodID mid_TextWalker_showGlyph;
 
+static JavaVM *jvm;
 static pthread_key_t context_key;
 static fz_context *base_context;
 
@@ -162,6 +179,11 @@ static void jni_throw_oom(JNIEnv *env, const char *info)
 	(*env)->ThrowNew(env, cls_OutOfMemoryError, info);
 }
 
+static void jni_throw_null(JNIEnv *env, const char *info)
+{
+	(*env)->ThrowNew(env, cls_NullPointerException, info);
+}
+
 static void jni_rethrow(JNIEnv *env, fz_context *ctx)
 {
 	jni_throw(env, fz_caught(ctx), fz_caught_message(ctx));
@@ -190,6 +212,32 @@ static void fz_throw_java(fz_context *ctx, JNIEnv *env)
 	fz_throw(ctx, FZ_ERROR_GENERIC, "unknown java error");
 }
 
+/* As above, but for errors that fitz may recover from and then go on
+ * calling into java, so the exception must not be left pending. */
+
+static void fz_throw_java_cleared(fz_context *ctx, JNIEnv *env)
+{
+	char buf[256] = "unknown java error";
+	jthrowable ex = (*env)->ExceptionOccurred(env);
+	if (ex)
+	{
+		jobject msg;
+		(*env)->ExceptionClear(env);
+		msg = (*env)->CallObjectMethod(env, ex, mid_Object_toString);
+		if (msg)
+		{
+			const char *p = (*env)->GetStringUTFChars(env, msg, NULL);
+			if (p)
+			{
+				fz_strlcpy(buf, p, sizeof buf);
+				(*env)->ReleaseStringUTFChars(env, msg, p);
+			}
+		}
+		(*env)->ExceptionClear(env);
+	}
+	fz_throw(ctx, FZ_ERROR_GENERIC, "%s", buf);
+}
+
 
 /* Load classes, field and method IDs. */
 
@@ -284,6 +332,9 @@ static int find_fids(JNIEnv *env)
 	fid_Annot_pointer = get_field(&err, env, "pointer", "J");
 	mid_Annot_init = get_method(&err, env, "<init>", "(J)V");
 
+	cls_BatchedDevice = get_class(&err, env, PKG"BatchedDevice");
+	mid_BatchedDevice_processBatch = get_method(&err, env, "processBatch", "(Ljava/nio/ByteBuffer;)V");
+
 	cls_ColorSpace = get_class(&err, env, PKG"ColorSpace");
 	fid_ColorSpace_pointer = get_field(&err, env, "pointer", "J");
 	mid_ColorSpace_init = get_method(&err, env, "<init>", "(J)V");
@@ -329,6 +380,9 @@ static int find_fids(JNIEnv *env)
 	fid_Font_pointer = get_field(&err, env, "pointer", "J");
 	mid_Font_init = get_method(&err, env, "<init>", "(J)V");
 
+	cls_GlyphRun = get_class(&err, env, PKG"GlyphRun");
+	mid_GlyphRun_init = get_method(&err, env, "<init>", "(L"PKG"Font;L"PKG"Matrix;Z[I[I[F[F)V");
+
 	cls_Image = get_class(&err, env, PKG"Image");
 	fid_Image_pointer = get_field(&err, env, "pointer", "J");
 	mid_Image_init = get_method(&err, env, "<init>", "(J)V");
@@ -345,6 +399,8 @@ static int find_fids(JNIEnv *env)
 	fid_Matrix_f = get_field(&err, env, "f", "F");
 	mid_Matrix_init = get_method(&err, env, "<init>", "(FFFFFF)V");
 
+	cls_MemoryLimitException = get_class(&err, env, PKG"MemoryLimitException");
+
 	cls_Outline = get_class(&err, env, PKG"Outline");
 	fid_Outline_pointer = get_field(&err, env, "pointer", "J");
 	mid_Outline_init = get_method(&err, env, "<init>", "(J)V");
@@ -371,6 +427,12 @@ static int find_fids(JNIEnv *env)
 	mid_PathWalker_curveTo = get_method(&err, env, "curveTo", "(FFFFFF)V");
 	mid_PathWalker_closePath = get_method(&err, env, "closePath", "()V");
 
+	cls_ProgressiveSource = get_class(&err, env, PKG"ProgressiveSource");
+
+	cls_RandomAccessSource = get_class(&err, env, PKG"RandomAccessSource");
+	mid_RandomAccessSource_read = get_method(&err, env, "read", "(JLjava/nio/ByteBuffer;)I");
+	mid_RandomAccessSource_size = get_method(&err, env, "size", "()J");
+
 	cls_Rect = get_class(&err, env, PKG"Rect");
 	fid_Rect_x0 = get_field(&err, env, "x0", "F");
 	fid_Rect_x1 = get_field(&err, env, "x1", "F");
@@ -382,10 +444,16 @@ static int find_fids(JNIEnv *env)
 	fid_Shade_pointer = get_field(&err, env, "pointer", "J");
 	mid_Shade_init = get_method(&err, env, "<init>", "(J)V");
 
+	cls_StoreStatistics = get_class(&err, env, PKG"StoreStatistics");
+	mid_StoreStatistics_init = get_method(&err, env, "<init>", "(Ljava/lang/String;IJIII)V");
+
 	cls_StrokeState = get_class(&err, env, PKG"StrokeState");
 	fid_StrokeState_pointer = get_field(&err, env, "pointer", "J");
 	mid_StrokeState_init = get_method(&err, env, "<init>", "(J)V");
 
+	cls_StructuredText = get_class(&err, env, PKG"StructuredText");
+	mid_StructuredText_init = get_method(&err, env, "<init>", "([I[F[I[F[I[F)V");
+
 	cls_Text = get_class(&err, env, PKG"Text");
 	fid_Text_pointer = get_field(&err, env, "pointer", "J");
 	mid_Text_init = get_method(&err, env, "<init>", "(J)V");
@@ -402,14 +470,21 @@ static int find_fids(JNIEnv *env)
 
 	cls_Exception = get_class(&err, env, "java/lang/Exception");
 
+	cls_Buffer = get_class(&err, env, "java/nio/Buffer");
+	mid_Buffer_clear = get_method(&err, env, "clear", "()Ljava/nio/Buffer;");
+
 	cls_OutOfMemoryError = get_class(&err, env, "java/lang/OutOfMemoryError");
 
+	cls_NullPointerException = get_class(&err, env, "java/lang/NullPointerException");
+
 	return err;
 }
 
 static void lose_fids(JNIEnv *env)
 {
 	(*env)->DeleteGlobalRef(env, cls_Annot);
+	(*env)->DeleteGlobalRef(env, cls_BatchedDevice);
+	(*env)->DeleteGlobalRef(env, cls_Buffer);
 	(*env)->DeleteGlobalRef(env, cls_ColorSpace);
 	(*env)->DeleteGlobalRef(env, cls_Cookie);
 	(*env)->DeleteGlobalRef(env, cls_Device);
@@ -417,10 +492,13 @@ static void lose_fids(JNIEnv *env)
 	(*env)->DeleteGlobalRef(env, cls_Document);
 	(*env)->DeleteGlobalRef(env, cls_Exception);
 	(*env)->DeleteGlobalRef(env, cls_Font);
+	(*env)->DeleteGlobalRef(env, cls_GlyphRun);
 	(*env)->DeleteGlobalRef(env, cls_Image);
 	(*env)->DeleteGlobalRef(env, cls_Link);
 	(*env)->DeleteGlobalRef(env, cls_Matrix);
+	(*env)->DeleteGlobalRef(env, cls_MemoryLimitException);
 	(*env)->DeleteGlobalRef(env, cls_NativeDevice);
+	(*env)->DeleteGlobalRef(env, cls_NullPointerException);
 	(*env)->DeleteGlobalRef(env, cls_Object);
 	(*env)->DeleteGlobalRef(env, cls_OutOfMemoryError);
 	(*env)->DeleteGlobalRef(env, cls_Outline);
@@ -429,13 +507,253 @@ static void lose_fids(JNIEnv *env)
 	(*env)->DeleteGlobalRef(env, cls_PathWalker);
 	(*env)->DeleteGlobalRef(env, cls_Pixmap);
 	(*env)->DeleteGlobalRef(env, cls_Point);
+	(*env)->DeleteGlobalRef(env, cls_ProgressiveSource);
+	(*env)->DeleteGlobalRef(env, cls_RandomAccessSource);
 	(*env)->DeleteGlobalRef(env, cls_Rect);
 	(*env)->DeleteGlobalRef(env, cls_Shade);
+	(*env)->DeleteGlobalRef(env, cls_StoreStatistics);
 	(*env)->DeleteGlobalRef(env, cls_StrokeState);
+	(*env)->DeleteGlobalRef(env, cls_StructuredText);
 	(*env)->DeleteGlobalRef(env, cls_Text);
 	(*env)->DeleteGlobalRef(env, cls_TryLaterException);
 }
 
+/* Our allocator. Each block is preceded by a header giving its size and
+ * the memory limit it was charged to, if any, so that both can be
+ * accounted for when it is freed. The totals are only kept when memory
+ * tracking is enabled. Cloned contexts are created and dropped without
+ * holding FZ_LOCK_ALLOC, so the counts have a lock of their own. */
+
+typedef struct
+{
+	size_t size;
+	size_t limit_id; /* also keeps the block aligned as malloc would */
+} trace_header;
+
+/* The native side of a Cookie. While an operation runs with a cookie that
+ * has a memory limit, the cookie is set on the thread, and what the thread
+ * allocates is charged to it. An allocation that would take it over the
+ * limit fails, and aborts the operation through the cookie. The same
+ * cookie may be in use by several threads at once. */
+typedef struct
+{
+	fz_cookie cookie; /* must come first */
+	size_t limit_id; /* 0 if there is no limit */
+	size_t limit;
+	size_t used;
+	int exceeded;
+} java_cookie;
+
+static pthread_mutex_t trace_mutex = PTHREAD_MUTEX_INITIALIZER;
+static pthread_key_t limit_key;
+static size_t next_limit_id = 1;
+static int trace_enabled;
+static size_t trace_current;
+static size_t trace_peak;
+static jlong trace_allocations;
+
+static void trace_add(size_t size)
+{
+	trace_current += size;
+	if (trace_current > trace_peak)
+		trace_peak = trace_current;
+}
+
+/* Charge size bytes to the limit, which must be locked. */
+static int limit_charge(java_cookie *jc, size_t size)
+{
+	if (jc->exceeded || size > jc->limit - jc->used)
+	{
+		jc->exceeded = 1;
+		jc->cookie.abort = 1;
+		return 0;
+	}
+	jc->used += size;
+	return 1;
+}
+
+static void *trace_malloc(void *user, unsigned int size)
+{
+	java_cookie *jc = pthread_getspecific(limit_key);
+	trace_header *p;
+
+	if (size == 0)
+		return NULL;
+	p = malloc(size + sizeof(trace_header));
+	if (p == NULL)
+		return NULL;
+	p[0].size = size;
+	p[0].limit_id = 0;
+
+	if (jc != NULL || trace_enabled)
+	{
+		(void)pthread_mutex_lock(&trace_mutex);
+		if (jc != NULL)
+		{
+			if (!limit_charge(jc, size))
+			{
+				(void)pthread_mutex_unlock(&trace_mutex);
+				free(p);
+				return NULL;
+			}
+			p[0].limit_id = jc->limit_id;
+		}
+		if (trace_enabled)
+		{
+			trace_add(size);
+			trace_allocations++;
+		}
+		(void)pthread_mutex_unlock(&trace_mutex);
+	}
+
+	return &p[1];
+}
+
+static void trace_free(void *user, void *p_)
+{
+	java_cookie *jc = pthread_getspecific(limit_key);
+	trace_header *p = (trace_header *)p_;
+	int charged;
+
+	if (p == NULL)
+		return;
+
+	charged = (jc != NULL && p[-1].limit_id == jc->limit_id);
+	if (charged || trace_enabled)
+	{
+		(void)pthread_mutex_lock(&trace_mutex);
+		if (charged)
+			jc->used -= p[-1].size;
+		if (trace_enabled)
+			trace_current -= p[-1].size;
+		(void)pthread_mutex_unlock(&trace_mutex);
+	}
+
+	free(&p[-1]);
+}
+
+static void *trace_realloc(void *user, void *p_, unsigned int size)
+{
+	java_cookie *jc = pthread_getspecific(limit_key);
+	trace_header *p = (trace_header *)p_;
+	size_t oldsize, charge = 0;
+	int charged;
+
+	if (size == 0)
+	{
+		trace_free(user, p_);
+		return NULL;
+	}
+	if (p == NULL)
+		return trace_malloc(user, size);
+
+	oldsize = p[-1].size;
+	charged = (jc != NULL && p[-1].limit_id == jc->limit_id);
+
+	/* Charge the growth up front, as a failed realloc must leave the
+	 * block as it was. Only growth is checked against the limit, so
+	 * shrinking is never refused, even once the limit has been exceeded.
+	 * A block not yet charged to this cookie is taken over at its new
+	 * size. If it was charged to another cookie, that one is not
+	 * credited, in the same way as a block freed outside any operation
+	 * with the cookie it is charged to stays charged to it. */
+	if (jc != NULL)
+	{
+		if (!charged)
+			charge = size;
+		else if (size > oldsize)
+			charge = size - oldsize;
+		if (charge > 0)
+		{
+			(void)pthread_mutex_lock(&trace_mutex);
+			if (size <= oldsize)
+				jc->used += charge;
+			else if (!limit_charge(jc, charge))
+			{
+				(void)pthread_mutex_unlock(&trace_mutex);
+				return NULL;
+			}
+			(void)pthread_mutex_unlock(&trace_mutex);
+		}
+	}
+
+	p = realloc(&p[-1], size + sizeof(trace_header));
+	if (p == NULL)
+	{
+		if (jc != NULL)
+		{
+			(void)pthread_mutex_lock(&trace_mutex);
+			jc->used -= charge;
+			(void)pthread_mutex_unlock(&trace_mutex);
+		}
+		return NULL;
+	}
+	p[0].size = size;
+
+	if (charged || trace_enabled)
+	{
+		(void)pthread_mutex_lock(&trace_mutex);
+		if (charged && size < oldsize)
+			jc->used -= oldsize - size;
+		if (trace_enabled)
+		{
+			trace_current -= oldsize;
+			trace_add(size);
+			trace_allocations++;
+		}
+		(void)pthread_mutex_unlock(&trace_mutex);
+	}
+	if (jc != NULL)
+		p[0].limit_id = jc->limit_id;
+
+	return &p[1];
+}
+
+static const fz_alloc_context trace_alloc =
+{
+	NULL, /* user */
+	trace_malloc,
+	trace_realloc,
+	trace_free
+};
+
+/* Set the cookie's memory limit, if it has one, on this thread for the
+ * duration of an operation. Returns what end_limit needs to restore.
+ * Once the limit has been exceeded, failed allocations are not retried
+ * by evicting from the store, which is shared with the other threads
+ * and would not bring the cookie back under its limit anyway. */
+static java_cookie *begin_limit(fz_context *ctx, fz_cookie *cookie)
+{
+	java_cookie *jc = (java_cookie *)cookie;
+	java_cookie *old = pthread_getspecific(limit_key);
+
+	if (jc != NULL && jc->limit_id != 0)
+	{
+		pthread_setspecific(limit_key, jc);
+		fz_set_scavenge_veto(ctx, &jc->exceeded);
+	}
+	return old;
+}
+
+static void end_limit(fz_context *ctx, java_cookie *old)
+{
+	pthread_setspecific(limit_key, old);
+	fz_set_scavenge_veto(ctx, old != NULL ? &old->exceeded : NULL);
+}
+
+/* After an operation run with a cookie: if it went over the cookie's
+ * memory limit, report that rather than whatever error it led to. */
+static void jni_check_limit(JNIEnv *env, fz_cookie *cookie)
+{
+	java_cookie *jc = (java_cookie *)cookie;
+
+	if (jc == NULL || !jc->exceeded)
+		return;
+
+	(*env)->ExceptionClear(env);
+	(*env)->ThrowNew(env, cls_MemoryLimitException, "memory limit exceeded");
+}
+
 /* Put the fz_context in thread-local storage */
 
 static pthread_mutex_t mutexes[FZ_LOCK_MAX];
@@ -468,16 +786,25 @@ static void fin_base_context(JNIEnv *env)
 	base_context = NULL;
 }
 
-static int init_base_context(JNIEnv *env)
+/* Each thread's clone of the base context is dropped when the thread
+ * exits, so that threads coming and going in a pool do not leak them. */
+static void drop_thread_context(void *ctx)
+{
+	fz_drop_context((fz_context *)ctx);
+}
+
+static int init_base_context(JNIEnv *env, int track_memory)
 {
 	int i;
 
-	pthread_key_create(&context_key, NULL);
+	pthread_key_create(&context_key, drop_thread_context);
+	pthread_key_create(&limit_key, NULL);
 
 	for (i = 0; i < FZ_LOCK_MAX; i++)
 		(void)pthread_mutex_init(&mutexes[i], NULL);
 
-	base_context = fz_new_context(NULL, &locks, FZ_STORE_DEFAULT);
+	trace_enabled = track_memory;
+	base_context = fz_new_context(&trace_alloc, &locks, FZ_STORE_DEFAULT);
 	if (base_context == NULL)
 		return -1;
 
@@ -510,6 +837,8 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved)
 	if ((*vm)->GetEnv(vm, (void **)&env, MY_JNI_VERSION) != JNI_OK)
 		return -1;
 
+	jvm = vm;
+
 	return MY_JNI_VERSION;
 }
 
@@ -526,13 +855,13 @@ void JNI_OnUnload(JavaVM *vm, void *reserved)
 }
 
 JNIEXPORT jint JNICALL
-FUN(Context_initNative)(JNIEnv *env, jclass cls)
+FUN(Context_initNative)(JNIEnv *env, jclass cls, jboolean track_memory)
 {
 	/* Must init the context before find_finds, because the act of
 	 * finding the fids can cause classes to load. This causes
 	 * statics to be setup, which can in turn call JNI code, which
 	 * requires the context. (For example see ColorSpace) */
-	if (init_base_context(env) < 0)
+	if (init_base_context(env, track_memory) < 0)
 		return -1;
 
 	if (find_fids(env) != 0)
@@ -544,6 +873,212 @@ FUN(Context_initNative)(JNIEnv *env, jclass cls)
 	return 0;
 }
 
+/* The store is shared by the base context and all its clones, so these
+ * act on all threads at once. */
+
+JNIEXPORT void JNICALL
+FUN(Context_setStoreSize)(JNIEnv *env, jclass cls, jlong size)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return;
+
+	if (size < 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "store size must not be negative");
+		return;
+	}
+
+	fz_set_store_size(ctx, size > UINT_MAX ? UINT_MAX : (unsigned int)size);
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Context_getStoreSize)(JNIEnv *env, jclass cls)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return 0;
+
+	return fz_store_size(ctx);
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Context_getStoreUsage)(JNIEnv *env, jclass cls)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return 0;
+
+	return fz_store_usage(ctx);
+}
+
+JNIEXPORT jboolean JNICALL
+FUN(Context_shrinkStore)(JNIEnv *env, jclass cls, jint percent)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return JNI_FALSE;
+
+	if (percent < 0)
+		percent = 0;
+
+	return fz_shrink_store(ctx, percent) ? JNI_TRUE : JNI_FALSE;
+}
+
+/* Every thread has its own clone of the base context, and the clone has
+ * its own copy of the anti-aliasing settings, so these only affect
+ * rendering on the calling thread. */
+
+JNIEXPORT void JNICALL
+FUN(Context_setAntiAliasLevel)(JNIEnv *env, jclass cls, jint bits)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return;
+
+	fz_set_aa_level(ctx, bits);
+}
+
+JNIEXPORT jint JNICALL
+FUN(Context_getAntiAliasLevel)(JNIEnv *env, jclass cls)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return 0;
+
+	return fz_aa_level(ctx);
+}
+
+/* The names match the constants in StoreStatistics. Kinds without a name
+ * of their own are added up under "other". */
+
+static const char *store_kind_name(fz_store_drop_fn *drop)
+{
+	if (drop == fz_drop_image_imp) return "image";
+	if (drop == fz_drop_pixmap_imp) return "decoded image";
+	if (drop == pdf_drop_font_imp) return "font";
+	if (drop == fz_drop_colorspace_imp) return "colorspace";
+	if (drop == fz_drop_shade_imp) return "shade";
+	if (drop == pdf_drop_pattern_imp) return "pattern";
+	if (drop == pdf_drop_xobject_imp) return "xobject";
+	if (drop == pdf_drop_cmap_imp) return "cmap";
+	return "other";
+}
+
+static jobject to_StoreStatistics(fz_context *ctx, JNIEnv *env, const char *name, const fz_store_stats *stats)
+{
+	jobject jname, jobj;
+
+	jname = (*env)->NewStringUTF(env, name);
+	if (jname == NULL)
+		fz_throw_java(ctx, env);
+
+	jobj = (*env)->NewObject(env, cls_StoreStatistics, mid_StoreStatistics_init, jname, stats->count, (jlong)stats->size, stats->hits, stats->misses, stats->evictions);
+	if (jobj == NULL)
+		fz_throw_java(ctx, env);
+
+	(*env)->DeleteLocalRef(env, jname);
+	return jobj;
+}
+
+JNIEXPORT jboolean JNICALL
+FUN(Context_getNativeMemoryStats)(JNIEnv *env, jclass cls, jlongArray jstats)
+{
+	jlong stats[3];
+
+	if (!trace_enabled)
+		return JNI_FALSE;
+
+	(void)pthread_mutex_lock(&trace_mutex);
+	stats[0] = (jlong)trace_current;
+	stats[1] = (jlong)trace_peak;
+	stats[2] = trace_allocations;
+	(void)pthread_mutex_unlock(&trace_mutex);
+
+	(*env)->SetLongArrayRegion(env, jstats, 0, 3, stats);
+	return JNI_TRUE;
+}
+
+JNIEXPORT jobjectArray JNICALL
+FUN(Context_getStoreStatistics)(JNIEnv *env, jclass cls)
+{
+	fz_context *ctx = get_context(env);
+	fz_store_stats stats[FZ_STORE_STATS_MAX];
+	fz_store_stats kinds[FZ_STORE_STATS_MAX];
+	const char *names[FZ_STORE_STATS_MAX];
+	fz_store_stats glyphs;
+	jobjectArray arr = NULL;
+	int i, k, n, count = 0;
+
+	if (ctx == NULL)
+		return NULL;
+
+	n = fz_store_statistics(ctx, stats, FZ_STORE_STATS_MAX);
+	for (i = 0; i < n; i++)
+	{
+		const char *name = store_kind_name(stats[i].drop);
+		for (k = 0; k < count; k++)
+			if (!strcmp(names[k], name))
+				break;
+		if (k == count)
+		{
+			memset(&kinds[k], 0, sizeof kinds[k]);
+			names[k] = name;
+			count++;
+		}
+		kinds[k].count += stats[i].count;
+		kinds[k].size += stats[i].size;
+		kinds[k].hits += stats[i].hits;
+		kinds[k].misses += stats[i].misses;
+		kinds[k].evictions += stats[i].evictions;
+	}
+	fz_glyph_cache_statistics(ctx, &glyphs);
+
+	fz_try(ctx)
+	{
+		jobject jstats;
+
+		arr = (*env)->NewObjectArray(env, count + 1, cls_StoreStatistics, NULL);
+		if (arr == NULL)
+			fz_throw_java(ctx, env);
+
+		for (k = 0; k < count; k++)
+		{
+			jstats = to_StoreStatistics(ctx, env, names[k], &kinds[k]);
+			(*env)->SetObjectArrayElement(env, arr, k, jstats);
+			(*env)->DeleteLocalRef(env, jstats);
+		}
+		jstats = to_StoreStatistics(ctx, env, "glyph", &glyphs);
+		(*env)->SetObjectArrayElement(env, arr, count, jstats);
+		(*env)->DeleteLocalRef(env, jstats);
+	}
+	fz_catch(ctx)
+	{
+		jni_rethrow(env, ctx);
+		return NULL;
+	}
+
+	return arr;
+}
+
+JNIEXPORT void JNICALL
+FUN(Context_resetStoreStatistics)(JNIEnv *env, jclass cls)
+{
+	fz_context *ctx = get_context(env);
+
+	if (ctx == NULL)
+		return;
+
+	fz_reset_store_statistics(ctx);
+	fz_reset_glyph_cache_statistics(ctx);
+}
+
 /* Conversion functions: C to Java. These all throw fitz exceptions. */
 
 static inline jobject to_Matrix(fz_context *ctx, JNIEnv *env, const fz_matrix *mat)
@@ -863,6 +1398,33 @@ static inline fz_rect from_Rect(JNIEnv *env, jobject jrect)
 	return rect;
 }
 
+/* A matrix or rectangle may also be passed as an array of floats, in the
+ * order of the fields of Matrix and Rect, which takes a single JNI call
+ * rather than one per field. These return 0, with an exception pending,
+ * if the array is null or too short. */
+
+static inline int from_jfloatArray_Matrix(JNIEnv *env, jfloatArray jmat, fz_matrix *mat)
+{
+	if (jmat == NULL)
+	{
+		jni_throw_null(env, "matrix must not be null");
+		return 0;
+	}
+	(*env)->GetFloatArrayRegion(env, jmat, 0, 6, (jfloat *)mat);
+	return !(*env)->ExceptionCheck(env);
+}
+
+static inline int from_jfloatArray_Rect(JNIEnv *env, jfloatArray jrect, fz_rect *rect)
+{
+	if (jrect == NULL)
+	{
+		jni_throw_null(env, "rectangle must not be null");
+		return 0;
+	}
+	(*env)->GetFloatArrayRegion(env, jrect, 0, 4, (jfloat *)rect);
+	return !(*env)->ExceptionCheck(env);
+}
+
 static inline void from_jfloatArray(JNIEnv *env, float *color, jint n, jfloatArray jcolor)
 {
 	jsize len = (*env)->GetArrayLength(env, jcolor);
@@ -1010,20 +1572,184 @@ typedef struct
 	fz_device super;
 	JNIEnv *env;
 	jobject self;
+
+	/* When reuse is set, the arguments passed to the java device are
+	 * scratch objects owned by the device rather than new objects for
+	 * every call. The wrappers borrow the C objects for the duration of
+	 * the call and have their pointers cleared again afterwards. */
+	int reuse;
+	jobject jctm;
+	jobject jpath;
+	jobject jtext;
+	jobject jstate;
+	jobject jimg;
+	jobject jcs;
+	fz_colorspace *cs;
+	jfloatArray jcolor[FZ_MAX_COLORS + 1];
 }
 fz_java_device;
 
-static void
-fz_java_device_fill_path(fz_context *ctx, fz_device *dev, const fz_path *path, int even_odd, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+static jobject java_device_wrapper(fz_context *ctx, JNIEnv *env, jobject *slot, jclass cls, jmethodID init, jfieldID fid, const void *p)
 {
-	fz_java_device *jdev = (fz_java_device *)dev;
-	JNIEnv *env = jdev->env;
-	jobject jpath = to_Path(ctx, env, path);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jobject jctm = to_Matrix(ctx, env, ctm);
-	jfloatArray jcolor = to_jfloatArray(ctx, env, color, cs ? cs->n : FZ_MAX_COLORS);
-
-	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillPath, jpath, (jboolean)even_odd, jctm, jcs, jcolor, alpha);
+	if (*slot == NULL)
+	{
+		jobject local = (*env)->NewObject(env, cls, init, (jlong)0);
+		if (local == NULL)
+			fz_throw_java(ctx, env);
+		*slot = (*env)->NewGlobalRef(env, local);
+		(*env)->DeleteLocalRef(env, local);
+		if (*slot == NULL)
+			fz_throw_java(ctx, env);
+	}
+	(*env)->SetLongField(env, *slot, fid, jlong_cast(p));
+	return *slot;
+}
+
+static jobject java_device_matrix(fz_context *ctx, fz_java_device *jdev, const fz_matrix *ctm)
+{
+	JNIEnv *env = jdev->env;
+	jobject local;
+
+	if (!jdev->reuse)
+		return to_Matrix(ctx, env, ctm);
+
+	if (jdev->jctm == NULL)
+	{
+		local = to_Matrix(ctx, env, ctm);
+		jdev->jctm = (*env)->NewGlobalRef(env, local);
+		(*env)->DeleteLocalRef(env, local);
+		if (jdev->jctm == NULL)
+			fz_throw_java(ctx, env);
+		return jdev->jctm;
+	}
+
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_a, ctm->a);
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_b, ctm->b);
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_c, ctm->c);
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_d, ctm->d);
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_e, ctm->e);
+	(*env)->SetFloatField(env, jdev->jctm, fid_Matrix_f, ctm->f);
+	return jdev->jctm;
+}
+
+static jobject java_device_path(fz_context *ctx, fz_java_device *jdev, const fz_path *path)
+{
+	if (!jdev->reuse)
+		return to_Path(ctx, jdev->env, path);
+	return java_device_wrapper(ctx, jdev->env, &jdev->jpath, cls_Path, mid_Path_init, fid_Path_pointer, path);
+}
+
+static jobject java_device_text(fz_context *ctx, fz_java_device *jdev, const fz_text *text)
+{
+	if (!jdev->reuse)
+		return to_Text(ctx, jdev->env, text);
+	return java_device_wrapper(ctx, jdev->env, &jdev->jtext, cls_Text, mid_Text_init, fid_Text_pointer, text);
+}
+
+static jobject java_device_stroke_state(fz_context *ctx, fz_java_device *jdev, const fz_stroke_state *state)
+{
+	if (!jdev->reuse)
+		return to_StrokeState(ctx, jdev->env, state);
+	return java_device_wrapper(ctx, jdev->env, &jdev->jstate, cls_StrokeState, mid_StrokeState_init, fid_StrokeState_pointer, state);
+}
+
+static jobject java_device_image(fz_context *ctx, fz_java_device *jdev, fz_image *img)
+{
+	if (!jdev->reuse)
+		return to_Image(ctx, jdev->env, img);
+	return java_device_wrapper(ctx, jdev->env, &jdev->jimg, cls_Image, mid_Image_init, fid_Image_pointer, img);
+}
+
+static jobject java_device_colorspace(fz_context *ctx, fz_java_device *jdev, fz_colorspace *cs)
+{
+	JNIEnv *env = jdev->env;
+	jobject local;
+
+	if (!jdev->reuse)
+		return to_ColorSpace(ctx, env, cs);
+
+	if (cs == NULL)
+		return NULL;
+	if (jdev->jcs != NULL && jdev->cs == cs)
+		return jdev->jcs;
+
+	local = to_ColorSpace(ctx, env, cs);
+	if (jdev->jcs != NULL)
+		(*env)->DeleteGlobalRef(env, jdev->jcs);
+	jdev->jcs = (*env)->NewGlobalRef(env, local);
+	jdev->cs = jdev->jcs ? cs : NULL;
+	(*env)->DeleteLocalRef(env, local);
+	if (jdev->jcs == NULL)
+		fz_throw_java(ctx, env);
+
+	return jdev->jcs;
+}
+
+static jfloatArray java_device_color(fz_context *ctx, fz_java_device *jdev, const float *color, int n)
+{
+	JNIEnv *env = jdev->env;
+	jfloatArray local;
+
+	if (!jdev->reuse || n < 0 || n > FZ_MAX_COLORS)
+		return to_jfloatArray(ctx, env, color, n);
+
+	if (jdev->jcolor[n] == NULL)
+	{
+		local = to_jfloatArray(ctx, env, color, n);
+		jdev->jcolor[n] = (*env)->NewGlobalRef(env, local);
+		(*env)->DeleteLocalRef(env, local);
+		if (jdev->jcolor[n] == NULL)
+			fz_throw_java(ctx, env);
+		return jdev->jcolor[n];
+	}
+
+	(*env)->SetFloatArrayRegion(env, jdev->jcolor[n], 0, n, color);
+	return jdev->jcolor[n];
+}
+
+/* Called after every call into the java device to clear the borrowed
+ * pointers. The device may have thrown, so any pending exception is
+ * stashed while the fields are updated. */
+static void java_device_release_args(fz_java_device *jdev)
+{
+	JNIEnv *env = jdev->env;
+	jthrowable ex;
+
+	if (!jdev->jpath && !jdev->jtext && !jdev->jstate && !jdev->jimg)
+		return;
+
+	ex = (*env)->ExceptionOccurred(env);
+	if (ex)
+		(*env)->ExceptionClear(env);
+
+	if (jdev->jpath)
+		(*env)->SetLongField(env, jdev->jpath, fid_Path_pointer, 0);
+	if (jdev->jtext)
+		(*env)->SetLongField(env, jdev->jtext, fid_Text_pointer, 0);
+	if (jdev->jstate)
+		(*env)->SetLongField(env, jdev->jstate, fid_StrokeState_pointer, 0);
+	if (jdev->jimg)
+		(*env)->SetLongField(env, jdev->jimg, fid_Image_pointer, 0);
+
+	if (ex)
+	{
+		(*env)->Throw(env, ex);
+		(*env)->DeleteLocalRef(env, ex);
+	}
+}
+
+static void
+fz_java_device_fill_path(fz_context *ctx, fz_device *dev, const fz_path *path, int even_odd, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_java_device *jdev = (fz_java_device *)dev;
+	JNIEnv *env = jdev->env;
+	jobject jpath = java_device_path(ctx, jdev, path);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
+	jfloatArray jcolor = java_device_color(ctx, jdev, color, cs ? cs->n : FZ_MAX_COLORS);
+
+	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillPath, jpath, (jboolean)even_odd, jctm, jcs, jcolor, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1033,13 +1759,14 @@ fz_java_device_stroke_path(fz_context *ctx, fz_device *dev, const fz_path *path,
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jpath = to_Path(ctx, env, path);
-	jobject jstate = to_StrokeState(ctx, env, state);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jobject jctm = to_Matrix(ctx, env, ctm);
-	jfloatArray jcolor = to_jfloatArray(ctx, env, color, cs ? cs->n : FZ_MAX_COLORS);
+	jobject jpath = java_device_path(ctx, jdev, path);
+	jobject jstate = java_device_stroke_state(ctx, jdev, state);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
+	jfloatArray jcolor = java_device_color(ctx, jdev, color, cs ? cs->n : FZ_MAX_COLORS);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_strokePath, jpath, jstate, jctm, jcs, jcolor, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1049,10 +1776,11 @@ fz_java_device_clip_path(fz_context *ctx, fz_device *dev, const fz_path *path, i
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jpath = to_Path(ctx, env, path);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jpath = java_device_path(ctx, jdev, path);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_clipPath, jpath, (jboolean)even_odd, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1062,11 +1790,12 @@ fz_java_device_clip_stroke_path(fz_context *ctx, fz_device *dev, const fz_path *
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jpath = to_Path(ctx, env, path);
-	jobject jstate = to_StrokeState(ctx, env, state);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jpath = java_device_path(ctx, jdev, path);
+	jobject jstate = java_device_stroke_state(ctx, jdev, state);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_clipStrokePath, jpath, jstate, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1076,12 +1805,13 @@ fz_java_device_fill_text(fz_context *ctx, fz_device *dev, const fz_text *text, c
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jtext = to_Text(ctx, env, text);
-	jobject jctm = to_Matrix(ctx, env, ctm);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jfloatArray jcolor = to_jfloatArray(ctx, env, color, cs ? cs->n : FZ_MAX_COLORS);
+	jobject jtext = java_device_text(ctx, jdev, text);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jfloatArray jcolor = java_device_color(ctx, jdev, color, cs ? cs->n : FZ_MAX_COLORS);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillText, jtext, jctm, jcs, jcolor, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1091,13 +1821,14 @@ fz_java_device_stroke_text(fz_context *ctx, fz_device *dev, const fz_text *text,
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jtext = to_Text(ctx, env, text);
-	jobject jstate = to_StrokeState(ctx, env, state);
-	jobject jctm = to_Matrix(ctx, env, ctm);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jfloatArray jcolor = to_jfloatArray(ctx, env, color, cs ? cs->n : FZ_MAX_COLORS);
+	jobject jtext = java_device_text(ctx, jdev, text);
+	jobject jstate = java_device_stroke_state(ctx, jdev, state);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jfloatArray jcolor = java_device_color(ctx, jdev, color, cs ? cs->n : FZ_MAX_COLORS);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_strokeText, jtext, jstate, jctm, jcs, jcolor, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1107,10 +1838,11 @@ fz_java_device_clip_text(fz_context *ctx, fz_device *dev, const fz_text *text, c
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jtext = to_Text(ctx, env, text);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jtext = java_device_text(ctx, jdev, text);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_clipText, jtext, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1120,11 +1852,12 @@ fz_java_device_clip_stroke_text(fz_context *ctx, fz_device *dev, const fz_text *
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jtext = to_Text(ctx, env, text);
-	jobject jstate = to_StrokeState(ctx, env, state);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jtext = java_device_text(ctx, jdev, text);
+	jobject jstate = java_device_stroke_state(ctx, jdev, state);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_clipStrokeText, jtext, jstate, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1134,10 +1867,11 @@ fz_java_device_ignore_text(fz_context *ctx, fz_device *dev, const fz_text *text,
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jtext = to_Text(ctx, env, text);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jtext = java_device_text(ctx, jdev, text);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_ignoreText, jtext, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1148,9 +1882,10 @@ fz_java_device_fill_shade(fz_context *ctx, fz_device *dev, fz_shade *shd, const
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
 	jobject jshd = to_Shade(ctx, env, shd);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillShade, jshd, jctm, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1160,10 +1895,11 @@ fz_java_device_fill_image(fz_context *ctx, fz_device *dev, fz_image *img, const
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jimg = to_Image(ctx, env, img);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jimg = java_device_image(ctx, jdev, img);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillImage, jimg, jctm, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1173,12 +1909,13 @@ fz_java_device_fill_image_mask(fz_context *ctx, fz_device *dev, fz_image *img, c
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jimg = to_Image(ctx, env, img);
-	jobject jctm = to_Matrix(ctx, env, ctm);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jfloatArray jcolor = to_jfloatArray(ctx, env, color, cs ? cs->n : FZ_MAX_COLORS);
+	jobject jimg = java_device_image(ctx, jdev, img);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jfloatArray jcolor = java_device_color(ctx, jdev, color, cs ? cs->n : FZ_MAX_COLORS);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_fillImageMask, jimg, jctm, jcs, jcolor, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1188,10 +1925,11 @@ fz_java_device_clip_image_mask(fz_context *ctx, fz_device *dev, fz_image *img, c
 {
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
-	jobject jimg = to_Image(ctx, env, img);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jimg = java_device_image(ctx, jdev, img);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_clipImageMask, jimg, jctm);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1203,6 +1941,7 @@ fz_java_device_pop_clip(fz_context *ctx, fz_device *dev)
 	JNIEnv *env = jdev->env;
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_popClip);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1213,10 +1952,11 @@ fz_java_device_begin_mask(fz_context *ctx, fz_device *dev, const fz_rect *rect,
 	fz_java_device *jdev = (fz_java_device *)dev;
 	JNIEnv *env = jdev->env;
 	jobject jrect = to_Rect(ctx, env, rect);
-	jobject jcs = to_ColorSpace(ctx, env, cs);
-	jfloatArray jbc = to_jfloatArray(ctx, env, bc, cs ? cs->n : FZ_MAX_COLORS);
+	jobject jcs = java_device_colorspace(ctx, jdev, cs);
+	jfloatArray jbc = java_device_color(ctx, jdev, bc, cs ? cs->n : FZ_MAX_COLORS);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_beginMask, jrect, (jint)luminosity, jcs, jbc);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1228,6 +1968,7 @@ fz_java_device_end_mask(fz_context *ctx, fz_device *dev)
 	JNIEnv *env = jdev->env;
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_endMask);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1240,6 +1981,7 @@ fz_java_device_begin_group(fz_context *ctx, fz_device *dev, const fz_rect *rect,
 	jobject jrect = to_Rect(ctx, env, rect);
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_beginGroup, jrect, (jboolean)isolated, (jboolean)knockout, (jint)blendmode, alpha);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1251,6 +1993,7 @@ fz_java_device_end_group(fz_context *ctx, fz_device *dev)
 	JNIEnv *env = jdev->env;
 
 	(*env)->CallVoidMethod(env, jdev->self, mid_Device_endGroup);
+	java_device_release_args(jdev);
 	if ((*env)->ExceptionCheck(env))
 		fz_throw_java(ctx, env);
 }
@@ -1262,85 +2005,969 @@ fz_java_device_begin_tile(fz_context *ctx, fz_device *dev, const fz_rect *area,
 	JNIEnv *env = jdev->env;
 	jobject jarea = to_Rect(ctx, env, area);
 	jobject jview = to_Rect(ctx, env, view);
-	jobject jctm = to_Matrix(ctx, env, ctm);
+	jobject jctm = java_device_matrix(ctx, jdev, ctm);
 	int res;
 
-	res = (*env)->CallIntMethod(env, jdev->self, mid_Device_beginTile, jarea, jview, xstep, ystep, jctm, (jint)id);
-	if ((*env)->ExceptionCheck(env))
-		fz_throw_java(ctx, env);
+	res = (*env)->CallIntMethod(env, jdev->self, mid_Device_beginTile, jarea, jview, xstep, ystep, jctm, (jint)id);
+	java_device_release_args(jdev);
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java(ctx, env);
+
+	return res;
+}
+
+static void
+fz_java_device_end_tile(fz_context *ctx, fz_device *dev)
+{
+	fz_java_device *jdev = (fz_java_device *)dev;
+	JNIEnv *env = jdev->env;
+
+	(*env)->CallVoidMethod(env, jdev->self, mid_Device_endTile);
+	java_device_release_args(jdev);
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java(ctx, env);
+}
+
+static void
+fz_java_device_drop_imp(fz_context *ctx, fz_device *dev)
+{
+	fz_java_device *jdev = (fz_java_device *)dev;
+	JNIEnv *env = jdev->env;
+	int i;
+
+	java_device_release_args(jdev);
+
+	(*env)->DeleteGlobalRef(env, jdev->self);
+	if (jdev->jctm)
+		(*env)->DeleteGlobalRef(env, jdev->jctm);
+	if (jdev->jpath)
+		(*env)->DeleteGlobalRef(env, jdev->jpath);
+	if (jdev->jtext)
+		(*env)->DeleteGlobalRef(env, jdev->jtext);
+	if (jdev->jstate)
+		(*env)->DeleteGlobalRef(env, jdev->jstate);
+	if (jdev->jimg)
+		(*env)->DeleteGlobalRef(env, jdev->jimg);
+	if (jdev->jcs)
+		(*env)->DeleteGlobalRef(env, jdev->jcs);
+	for (i = 0; i <= FZ_MAX_COLORS; i++)
+		if (jdev->jcolor[i])
+			(*env)->DeleteGlobalRef(env, jdev->jcolor[i]);
+}
+
+static fz_device *fz_new_java_device(fz_context *ctx, JNIEnv *env, jobject self)
+{
+	fz_java_device *dev = NULL;
+
+	fz_try(ctx)
+	{
+		dev = fz_new_device(ctx, sizeof(fz_java_device));
+		dev->env = env;
+
+		dev->self = (*env)->NewGlobalRef(env, self);
+
+		dev->super.drop_imp = fz_java_device_drop_imp;
+
+		dev->super.fill_path = fz_java_device_fill_path;
+		dev->super.stroke_path = fz_java_device_stroke_path;
+		dev->super.clip_path = fz_java_device_clip_path;
+		dev->super.clip_stroke_path = fz_java_device_clip_stroke_path;
+
+		dev->super.fill_text = fz_java_device_fill_text;
+		dev->super.stroke_text = fz_java_device_stroke_text;
+		dev->super.clip_text = fz_java_device_clip_text;
+		dev->super.clip_stroke_text = fz_java_device_clip_stroke_text;
+		dev->super.ignore_text = fz_java_device_ignore_text;
+
+		dev->super.fill_shade = fz_java_device_fill_shade;
+		dev->super.fill_image = fz_java_device_fill_image;
+		dev->super.fill_image_mask = fz_java_device_fill_image_mask;
+		dev->super.clip_image_mask = fz_java_device_clip_image_mask;
+
+		dev->super.pop_clip = fz_java_device_pop_clip;
+
+		dev->super.begin_mask = fz_java_device_begin_mask;
+		dev->super.end_mask = fz_java_device_end_mask;
+		dev->super.begin_group = fz_java_device_begin_group;
+		dev->super.end_group = fz_java_device_end_group;
+
+		dev->super.begin_tile = fz_java_device_begin_tile;
+		dev->super.end_tile = fz_java_device_end_tile;
+	}
+	fz_catch(ctx)
+	{
+		jni_rethrow(env, ctx);
+	}
+
+	return (fz_device*)dev;
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Device_newNative)(JNIEnv *env, jclass self)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = NULL;
+
+	if (ctx == NULL)
+		return 0;
+
+	fz_try(ctx)
+		dev = fz_new_java_device(ctx, env, self);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jlong_cast(dev);
+}
+
+JNIEXPORT void JNICALL
+FUN(Device_setReuseArguments)(JNIEnv *env, jobject self, jboolean reuse)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = from_Device(env, self, ctx);
+
+	if (ctx == NULL || dev == NULL)
+		return;
+
+	/* Only devices implemented in java have arguments to reuse. */
+	if (dev->drop_imp != fz_java_device_drop_imp)
+		return;
+
+	((fz_java_device *)dev)->reuse = reuse;
+}
+
+JNIEXPORT jint JNICALL
+FUN(Device_getHints)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = from_Device(env, self, ctx);
+
+	if (ctx == NULL || dev == NULL)
+		return 0;
+
+	return dev->hints;
+}
+
+JNIEXPORT void JNICALL
+FUN(Device_enableDeviceHints)(JNIEnv *env, jobject self, jint hints)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = from_Device(env, self, ctx);
+
+	if (ctx == NULL || dev == NULL)
+		return;
+
+	fz_enable_device_hints(ctx, dev, hints);
+}
+
+JNIEXPORT void JNICALL
+FUN(Device_disableDeviceHints)(JNIEnv *env, jobject self, jint hints)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = from_Device(env, self, ctx);
+
+	if (ctx == NULL || dev == NULL)
+		return;
+
+	fz_disable_device_hints(ctx, dev, hints);
+}
+
+/* Batched device. This is a C device that records the operations it
+ * is given into a growing buffer, and only calls into java once the
+ * buffer holds a whole chunk (or when flushed explicitly). The java side
+ * (BatchedDevice.replay) decodes the buffer and replays the operations
+ * into a java device. Path and text geometry is written inline so that
+ * walking it needs no further calls back into C.
+ *
+ * Every value is written in native byte order. Objects are passed as
+ * pointers, which are kept until the chunk holding them has been
+ * delivered; the java wrappers only borrow them for that long.
+ *
+ *	path:	pointer, int size, int count, count * (byte verb, floats)
+ *	text:	pointer, int size, int count,
+ *		count * (pointer font, 4 * float trm, int wmode, int len,
+ *			len * (int gid, int ucs, float x, float y))
+ *	color:	pointer colorspace, int n, n * float (n is -1 for no color)
+ */
+
+enum
+{
+	BATCH_FILL_PATH = 1,
+	BATCH_STROKE_PATH,
+	BATCH_CLIP_PATH,
+	BATCH_CLIP_STROKE_PATH,
+	BATCH_FILL_TEXT,
+	BATCH_STROKE_TEXT,
+	BATCH_CLIP_TEXT,
+	BATCH_CLIP_STROKE_TEXT,
+	BATCH_IGNORE_TEXT,
+	BATCH_FILL_SHADE,
+	BATCH_FILL_IMAGE,
+	BATCH_FILL_IMAGE_MASK,
+	BATCH_CLIP_IMAGE_MASK,
+	BATCH_POP_CLIP,
+	BATCH_BEGIN_MASK,
+	BATCH_END_MASK,
+	BATCH_BEGIN_GROUP,
+	BATCH_END_GROUP,
+	BATCH_BEGIN_TILE,
+	BATCH_END_TILE
+};
+
+enum
+{
+	BATCH_KEEP_PATH,
+	BATCH_KEEP_TEXT,
+	BATCH_KEEP_STROKE_STATE,
+	BATCH_KEEP_IMAGE,
+	BATCH_KEEP_SHADE,
+	BATCH_KEEP_COLORSPACE
+};
+
+typedef struct
+{
+	int type;
+	void *obj;
+}
+fz_batched_kept;
+
+typedef struct
+{
+	fz_device super;
+	JNIEnv *env;
+	jobject self;
+
+	unsigned char *buf;
+	int len, cap, chunk;
+
+	fz_batched_kept *kept;
+	int kept_len, kept_cap;
+}
+fz_batched_device;
+
+static void batch_write(fz_context *ctx, fz_batched_device *bdev, const void *data, int n)
+{
+	if (bdev->len + n > bdev->cap)
+	{
+		int cap = bdev->cap;
+		while (bdev->len + n > cap)
+			cap *= 2;
+		bdev->buf = fz_resize_array(ctx, bdev->buf, cap, 1);
+		bdev->cap = cap;
+	}
+	memcpy(bdev->buf + bdev->len, data, n);
+	bdev->len += n;
+}
+
+static void batch_byte(fz_context *ctx, fz_batched_device *bdev, int v)
+{
+	unsigned char c = v;
+	batch_write(ctx, bdev, &c, 1);
+}
+
+static void batch_int(fz_context *ctx, fz_batched_device *bdev, int v)
+{
+	jint i = v;
+	batch_write(ctx, bdev, &i, sizeof i);
+}
+
+static void batch_float(fz_context *ctx, fz_batched_device *bdev, float v)
+{
+	jfloat f = v;
+	batch_write(ctx, bdev, &f, sizeof f);
+}
+
+static void batch_pointer(fz_context *ctx, fz_batched_device *bdev, const void *p)
+{
+	jlong l = jlong_cast(p);
+	batch_write(ctx, bdev, &l, sizeof l);
+}
+
+static void batch_patch_int(fz_batched_device *bdev, int pos, int v)
+{
+	jint i = v;
+	memcpy(bdev->buf + pos, &i, sizeof i);
+}
+
+static void batch_matrix(fz_context *ctx, fz_batched_device *bdev, const fz_matrix *m)
+{
+	batch_float(ctx, bdev, m->a);
+	batch_float(ctx, bdev, m->b);
+	batch_float(ctx, bdev, m->c);
+	batch_float(ctx, bdev, m->d);
+	batch_float(ctx, bdev, m->e);
+	batch_float(ctx, bdev, m->f);
+}
+
+static void batch_rect(fz_context *ctx, fz_batched_device *bdev, const fz_rect *r)
+{
+	batch_float(ctx, bdev, r->x0);
+	batch_float(ctx, bdev, r->y0);
+	batch_float(ctx, bdev, r->x1);
+	batch_float(ctx, bdev, r->y1);
+}
+
+/* Keep obj until the chunk it is referenced from has been delivered.
+ * Stroke states on the stack are cloned, so use the returned pointer. */
+static void *batch_keep(fz_context *ctx, fz_batched_device *bdev, int type, const void *obj)
+{
+	fz_batched_kept *k;
+
+	if (obj == NULL)
+		return NULL;
+
+	if (bdev->kept_len == bdev->kept_cap)
+	{
+		int cap = bdev->kept_cap ? bdev->kept_cap * 2 : 32;
+		bdev->kept = fz_resize_array(ctx, bdev->kept, cap, sizeof *bdev->kept);
+		bdev->kept_cap = cap;
+	}
+
+	k = &bdev->kept[bdev->kept_len];
+	k->type = type;
+	switch (type)
+	{
+	case BATCH_KEEP_PATH: k->obj = fz_keep_path(ctx, obj); break;
+	case BATCH_KEEP_TEXT: k->obj = fz_keep_text(ctx, obj); break;
+	case BATCH_KEEP_STROKE_STATE: k->obj = fz_keep_stroke_state(ctx, obj); break;
+	case BATCH_KEEP_IMAGE: k->obj = fz_keep_image(ctx, (fz_image *)obj); break;
+	case BATCH_KEEP_SHADE: k->obj = fz_keep_shade(ctx, (fz_shade *)obj); break;
+	case BATCH_KEEP_COLORSPACE: k->obj = fz_keep_colorspace(ctx, (fz_colorspace *)obj); break;
+	}
+	bdev->kept_len++;
+
+	return k->obj;
+}
+
+static void batch_drop_kept(fz_context *ctx, fz_batched_device *bdev)
+{
+	int i;
+
+	for (i = 0; i < bdev->kept_len; i++)
+	{
+		fz_batched_kept *k = &bdev->kept[i];
+		switch (k->type)
+		{
+		case BATCH_KEEP_PATH: fz_drop_path(ctx, k->obj); break;
+		case BATCH_KEEP_TEXT: fz_drop_text(ctx, k->obj); break;
+		case BATCH_KEEP_STROKE_STATE: fz_drop_stroke_state(ctx, k->obj); break;
+		case BATCH_KEEP_IMAGE: fz_drop_image(ctx, k->obj); break;
+		case BATCH_KEEP_SHADE: fz_drop_shade(ctx, k->obj); break;
+		case BATCH_KEEP_COLORSPACE: fz_drop_colorspace(ctx, k->obj); break;
+		}
+	}
+	bdev->kept_len = 0;
+}
+
+typedef struct
+{
+	fz_batched_device *bdev;
+	int count;
+}
+batch_path_arg;
+
+static void batch_moveto(fz_context *ctx, void *arg_, float x, float y)
+{
+	batch_path_arg *arg = (batch_path_arg *)arg_;
+	batch_byte(ctx, arg->bdev, 'M');
+	batch_float(ctx, arg->bdev, x);
+	batch_float(ctx, arg->bdev, y);
+	arg->count++;
+}
+
+static void batch_lineto(fz_context *ctx, void *arg_, float x, float y)
+{
+	batch_path_arg *arg = (batch_path_arg *)arg_;
+	batch_byte(ctx, arg->bdev, 'L');
+	batch_float(ctx, arg->bdev, x);
+	batch_float(ctx, arg->bdev, y);
+	arg->count++;
+}
+
+static void batch_curveto(fz_context *ctx, void *arg_, float x1, float y1, float x2, float y2, float x3, float y3)
+{
+	batch_path_arg *arg = (batch_path_arg *)arg_;
+	batch_byte(ctx, arg->bdev, 'C');
+	batch_float(ctx, arg->bdev, x1);
+	batch_float(ctx, arg->bdev, y1);
+	batch_float(ctx, arg->bdev, x2);
+	batch_float(ctx, arg->bdev, y2);
+	batch_float(ctx, arg->bdev, x3);
+	batch_float(ctx, arg->bdev, y3);
+	arg->count++;
+}
+
+static void batch_closepath(fz_context *ctx, void *arg_)
+{
+	batch_path_arg *arg = (batch_path_arg *)arg_;
+	batch_byte(ctx, arg->bdev, 'Z');
+	arg->count++;
+}
+
+static const fz_path_walker batch_path_walker =
+{
+	batch_moveto,
+	batch_lineto,
+	batch_curveto,
+	batch_closepath,
+	NULL,
+	NULL,
+	NULL,
+	NULL
+};
+
+static void batch_path(fz_context *ctx, fz_batched_device *bdev, const fz_path *path)
+{
+	batch_path_arg arg;
+	int pos;
+
+	batch_pointer(ctx, bdev, batch_keep(ctx, bdev, BATCH_KEEP_PATH, path));
+	pos = bdev->len;
+	batch_int(ctx, bdev, 0);
+	batch_int(ctx, bdev, 0);
+
+	arg.bdev = bdev;
+	arg.count = 0;
+	fz_walk_path(ctx, path, &batch_path_walker, &arg);
+
+	batch_patch_int(bdev, pos, bdev->len - pos - 8);
+	batch_patch_int(bdev, pos + 4, arg.count);
+}
+
+static void batch_text(fz_context *ctx, fz_batched_device *bdev, const fz_text *text)
+{
+	fz_text_span *span;
+	int pos, count = 0;
+	int i;
+
+	batch_pointer(ctx, bdev, batch_keep(ctx, bdev, BATCH_KEEP_TEXT, text));
+	pos = bdev->len;
+	batch_int(ctx, bdev, 0);
+	batch_int(ctx, bdev, 0);
+
+	for (span = text->head; span; span = span->next)
+	{
+		batch_pointer(ctx, bdev, span->font);
+		batch_float(ctx, bdev, span->trm.a);
+		batch_float(ctx, bdev, span->trm.b);
+		batch_float(ctx, bdev, span->trm.c);
+		batch_float(ctx, bdev, span->trm.d);
+		batch_int(ctx, bdev, span->wmode);
+		batch_int(ctx, bdev, span->len);
+		for (i = 0; i < span->len; i++)
+		{
+			batch_int(ctx, bdev, span->items[i].gid);
+			batch_int(ctx, bdev, span->items[i].ucs);
+			batch_float(ctx, bdev, span->items[i].x);
+			batch_float(ctx, bdev, span->items[i].y);
+		}
+		count++;
+	}
+
+	batch_patch_int(bdev, pos, bdev->len - pos - 8);
+	batch_patch_int(bdev, pos + 4, count);
+}
+
+static void batch_object(fz_context *ctx, fz_batched_device *bdev, int type, const void *obj)
+{
+	batch_pointer(ctx, bdev, batch_keep(ctx, bdev, type, obj));
+}
+
+static void batch_color(fz_context *ctx, fz_batched_device *bdev, fz_colorspace *cs, const float *color)
+{
+	int n = cs ? cs->n : FZ_MAX_COLORS;
+	int i;
+
+	batch_object(ctx, bdev, BATCH_KEEP_COLORSPACE, cs);
+	if (color == NULL)
+	{
+		batch_int(ctx, bdev, -1);
+		return;
+	}
+	batch_int(ctx, bdev, n);
+	for (i = 0; i < n; i++)
+		batch_float(ctx, bdev, color[i]);
+}
+
+/* Hand the recorded operations to java, then let go of everything they
+ * referred to. */
+static void batch_flush(fz_context *ctx, fz_batched_device *bdev)
+{
+	JNIEnv *env = bdev->env;
+	jobject jbuf;
+
+	if (bdev->len > 0)
+	{
+		jbuf = (*env)->NewDirectByteBuffer(env, bdev->buf, bdev->len);
+		if (jbuf != NULL)
+		{
+			(*env)->CallVoidMethod(env, bdev->self, mid_BatchedDevice_processBatch, jbuf);
+			(*env)->DeleteLocalRef(env, jbuf);
+		}
+		bdev->len = 0;
+	}
+	batch_drop_kept(ctx, bdev);
+
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java(ctx, env);
+}
+
+static void batch_end(fz_context *ctx, fz_batched_device *bdev)
+{
+	if (bdev->len >= bdev->chunk)
+		batch_flush(ctx, bdev);
+}
+
+static void
+fz_batched_device_fill_path(fz_context *ctx, fz_device *dev, const fz_path *path, int even_odd, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_FILL_PATH);
+		batch_path(ctx, bdev, path);
+		batch_int(ctx, bdev, even_odd);
+		batch_matrix(ctx, bdev, ctm);
+		batch_color(ctx, bdev, cs, color);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_stroke_path(fz_context *ctx, fz_device *dev, const fz_path *path, const fz_stroke_state *state, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_STROKE_PATH);
+		batch_path(ctx, bdev, path);
+		batch_object(ctx, bdev, BATCH_KEEP_STROKE_STATE, state);
+		batch_matrix(ctx, bdev, ctm);
+		batch_color(ctx, bdev, cs, color);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_clip_path(fz_context *ctx, fz_device *dev, const fz_path *path, int even_odd, const fz_matrix *ctm, const fz_rect *scissor)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_CLIP_PATH);
+		batch_path(ctx, bdev, path);
+		batch_int(ctx, bdev, even_odd);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_clip_stroke_path(fz_context *ctx, fz_device *dev, const fz_path *path, const fz_stroke_state *state, const fz_matrix *ctm, const fz_rect *scissor)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_CLIP_STROKE_PATH);
+		batch_path(ctx, bdev, path);
+		batch_object(ctx, bdev, BATCH_KEEP_STROKE_STATE, state);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_fill_text(fz_context *ctx, fz_device *dev, const fz_text *text, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_FILL_TEXT);
+		batch_text(ctx, bdev, text);
+		batch_matrix(ctx, bdev, ctm);
+		batch_color(ctx, bdev, cs, color);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_stroke_text(fz_context *ctx, fz_device *dev, const fz_text *text, const fz_stroke_state *state, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_STROKE_TEXT);
+		batch_text(ctx, bdev, text);
+		batch_object(ctx, bdev, BATCH_KEEP_STROKE_STATE, state);
+		batch_matrix(ctx, bdev, ctm);
+		batch_color(ctx, bdev, cs, color);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_clip_text(fz_context *ctx, fz_device *dev, const fz_text *text, const fz_matrix *ctm, const fz_rect *scissor)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_CLIP_TEXT);
+		batch_text(ctx, bdev, text);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_clip_stroke_text(fz_context *ctx, fz_device *dev, const fz_text *text, const fz_stroke_state *state, const fz_matrix *ctm, const fz_rect *scissor)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_CLIP_STROKE_TEXT);
+		batch_text(ctx, bdev, text);
+		batch_object(ctx, bdev, BATCH_KEEP_STROKE_STATE, state);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_ignore_text(fz_context *ctx, fz_device *dev, const fz_text *text, const fz_matrix *ctm)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_IGNORE_TEXT);
+		batch_text(ctx, bdev, text);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_fill_shade(fz_context *ctx, fz_device *dev, fz_shade *shd, const fz_matrix *ctm, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_FILL_SHADE);
+		batch_object(ctx, bdev, BATCH_KEEP_SHADE, shd);
+		batch_matrix(ctx, bdev, ctm);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_fill_image(fz_context *ctx, fz_device *dev, fz_image *img, const fz_matrix *ctm, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_FILL_IMAGE);
+		batch_object(ctx, bdev, BATCH_KEEP_IMAGE, img);
+		batch_matrix(ctx, bdev, ctm);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_fill_image_mask(fz_context *ctx, fz_device *dev, fz_image *img, const fz_matrix *ctm, fz_colorspace *cs, const float *color, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_FILL_IMAGE_MASK);
+		batch_object(ctx, bdev, BATCH_KEEP_IMAGE, img);
+		batch_matrix(ctx, bdev, ctm);
+		batch_color(ctx, bdev, cs, color);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_clip_image_mask(fz_context *ctx, fz_device *dev, fz_image *img, const fz_matrix *ctm, const fz_rect *scissor)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_CLIP_IMAGE_MASK);
+		batch_object(ctx, bdev, BATCH_KEEP_IMAGE, img);
+		batch_matrix(ctx, bdev, ctm);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_pop_clip(fz_context *ctx, fz_device *dev)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+
+	batch_int(ctx, bdev, BATCH_POP_CLIP);
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_begin_mask(fz_context *ctx, fz_device *dev, const fz_rect *rect, int luminosity, fz_colorspace *cs, const float *bc)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_BEGIN_MASK);
+		batch_rect(ctx, bdev, rect);
+		batch_int(ctx, bdev, luminosity);
+		batch_color(ctx, bdev, cs, bc);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_end_mask(fz_context *ctx, fz_device *dev)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+
+	batch_int(ctx, bdev, BATCH_END_MASK);
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_begin_group(fz_context *ctx, fz_device *dev, const fz_rect *rect, int isolated, int knockout, int blendmode, float alpha)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_BEGIN_GROUP);
+		batch_rect(ctx, bdev, rect);
+		batch_int(ctx, bdev, isolated);
+		batch_int(ctx, bdev, knockout);
+		batch_int(ctx, bdev, blendmode);
+		batch_float(ctx, bdev, alpha);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
+}
+
+static void
+fz_batched_device_end_group(fz_context *ctx, fz_device *dev)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+
+	batch_int(ctx, bdev, BATCH_END_GROUP);
+	batch_end(ctx, bdev);
+}
+
+/* The java device only sees the tile once the chunk is delivered, so
+ * it cannot ask for the tile to be cached; the contents are always sent. */
+static int
+fz_batched_device_begin_tile(fz_context *ctx, fz_device *dev, const fz_rect *area, const fz_rect *view, float xstep, float ystep, const fz_matrix *ctm, int id)
+{
+	fz_batched_device *bdev = (fz_batched_device *)dev;
+	int start = bdev->len;
+
+	fz_try(ctx)
+	{
+		batch_int(ctx, bdev, BATCH_BEGIN_TILE);
+		batch_rect(ctx, bdev, area);
+		batch_rect(ctx, bdev, view);
+		batch_float(ctx, bdev, xstep);
+		batch_float(ctx, bdev, ystep);
+		batch_matrix(ctx, bdev, ctm);
+		batch_int(ctx, bdev, id);
+	}
+	fz_catch(ctx)
+	{
+		bdev->len = start;
+		fz_rethrow(ctx);
+	}
+	batch_end(ctx, bdev);
 
-	return res;
+	return 0;
 }
 
 static void
-fz_java_device_end_tile(fz_context *ctx, fz_device *dev)
+fz_batched_device_end_tile(fz_context *ctx, fz_device *dev)
 {
-	fz_java_device *jdev = (fz_java_device *)dev;
-	JNIEnv *env = jdev->env;
+	fz_batched_device *bdev = (fz_batched_device *)dev;
 
-	(*env)->CallVoidMethod(env, jdev->self, mid_Device_endTile);
-	if ((*env)->ExceptionCheck(env))
-		fz_throw_java(ctx, env);
+	batch_int(ctx, bdev, BATCH_END_TILE);
+	batch_end(ctx, bdev);
 }
 
 static void
-fz_java_device_drop_imp(fz_context *ctx, fz_device *dev)
+fz_batched_device_drop_imp(fz_context *ctx, fz_device *dev)
 {
-	fz_java_device *jdev = (fz_java_device *)dev;
-	JNIEnv *env = jdev->env;
+	fz_batched_device *bdev = (fz_batched_device *)dev;
 
-	(*env)->DeleteGlobalRef(env, jdev->self);
+	batch_drop_kept(ctx, bdev);
+	fz_free(ctx, bdev->kept);
+	fz_free(ctx, bdev->buf);
+	(*bdev->env)->DeleteGlobalRef(bdev->env, bdev->self);
 }
 
-static fz_device *fz_new_java_device(fz_context *ctx, JNIEnv *env, jobject self)
+static fz_device *fz_new_batched_device(fz_context *ctx, JNIEnv *env, jobject self, int chunk)
 {
-	fz_java_device *dev = NULL;
+	fz_batched_device *dev = fz_new_device(ctx, sizeof(fz_batched_device));
 
 	fz_try(ctx)
 	{
-		dev = fz_new_device(ctx, sizeof(fz_java_device));
+		dev->chunk = chunk;
+		dev->cap = chunk + 1024;
+		dev->buf = fz_malloc(ctx, dev->cap);
 		dev->env = env;
-
 		dev->self = (*env)->NewGlobalRef(env, self);
+		if (dev->self == NULL)
+			fz_throw(ctx, FZ_ERROR_GENERIC, "cannot reference batched device");
+	}
+	fz_catch(ctx)
+	{
+		fz_free(ctx, dev->buf);
+		fz_free(ctx, dev);
+		fz_rethrow(ctx);
+	}
 
-		dev->super.drop_imp = fz_java_device_drop_imp;
+	dev->super.drop_imp = fz_batched_device_drop_imp;
 
-		dev->super.fill_path = fz_java_device_fill_path;
-		dev->super.stroke_path = fz_java_device_stroke_path;
-		dev->super.clip_path = fz_java_device_clip_path;
-		dev->super.clip_stroke_path = fz_java_device_clip_stroke_path;
+	dev->super.fill_path = fz_batched_device_fill_path;
+	dev->super.stroke_path = fz_batched_device_stroke_path;
+	dev->super.clip_path = fz_batched_device_clip_path;
+	dev->super.clip_stroke_path = fz_batched_device_clip_stroke_path;
 
-		dev->super.fill_text = fz_java_device_fill_text;
-		dev->super.stroke_text = fz_java_device_stroke_text;
-		dev->super.clip_text = fz_java_device_clip_text;
-		dev->super.clip_stroke_text = fz_java_device_clip_stroke_text;
-		dev->super.ignore_text = fz_java_device_ignore_text;
+	dev->super.fill_text = fz_batched_device_fill_text;
+	dev->super.stroke_text = fz_batched_device_stroke_text;
+	dev->super.clip_text = fz_batched_device_clip_text;
+	dev->super.clip_stroke_text = fz_batched_device_clip_stroke_text;
+	dev->super.ignore_text = fz_batched_device_ignore_text;
 
-		dev->super.fill_shade = fz_java_device_fill_shade;
-		dev->super.fill_image = fz_java_device_fill_image;
-		dev->super.fill_image_mask = fz_java_device_fill_image_mask;
-		dev->super.clip_image_mask = fz_java_device_clip_image_mask;
+	dev->super.fill_shade = fz_batched_device_fill_shade;
+	dev->super.fill_image = fz_batched_device_fill_image;
+	dev->super.fill_image_mask = fz_batched_device_fill_image_mask;
+	dev->super.clip_image_mask = fz_batched_device_clip_image_mask;
 
-		dev->super.pop_clip = fz_java_device_pop_clip;
+	dev->super.pop_clip = fz_batched_device_pop_clip;
 
-		dev->super.begin_mask = fz_java_device_begin_mask;
-		dev->super.end_mask = fz_java_device_end_mask;
-		dev->super.begin_group = fz_java_device_begin_group;
-		dev->super.end_group = fz_java_device_end_group;
+	dev->super.begin_mask = fz_batched_device_begin_mask;
+	dev->super.end_mask = fz_batched_device_end_mask;
+	dev->super.begin_group = fz_batched_device_begin_group;
+	dev->super.end_group = fz_batched_device_end_group;
 
-		dev->super.begin_tile = fz_java_device_begin_tile;
-		dev->super.end_tile = fz_java_device_end_tile;
-	}
-	fz_catch(ctx)
-	{
-		jni_rethrow(env, ctx);
-	}
+	dev->super.begin_tile = fz_batched_device_begin_tile;
+	dev->super.end_tile = fz_batched_device_end_tile;
 
-	return (fz_device*)dev;
+	return (fz_device *)dev;
 }
 
 JNIEXPORT jlong JNICALL
-FUN(Device_newNative)(JNIEnv *env, jclass self)
+FUN(BatchedDevice_newNativeBatchedDevice)(JNIEnv *env, jobject self, jint bufferSize)
 {
 	fz_context *ctx = get_context(env);
 	fz_device *dev = NULL;
@@ -1348,8 +2975,14 @@ FUN(Device_newNative)(JNIEnv *env, jclass self)
 	if (ctx == NULL)
 		return 0;
 
+	if (bufferSize <= 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "buffer size must be positive");
+		return 0;
+	}
+
 	fz_try(ctx)
-		dev = fz_new_java_device(ctx, env, self);
+		dev = fz_new_batched_device(ctx, env, self, bufferSize);
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
 
@@ -1357,7 +2990,7 @@ FUN(Device_newNative)(JNIEnv *env, jclass self)
 }
 
 JNIEXPORT void JNICALL
-FUN(Device_finalize)(JNIEnv *env, jobject self)
+FUN(BatchedDevice_flush)(JNIEnv *env, jobject self)
 {
 	fz_context *ctx = get_context(env);
 	fz_device *dev = from_Device(env, self, ctx);
@@ -1365,7 +2998,10 @@ FUN(Device_finalize)(JNIEnv *env, jobject self)
 	if (ctx == NULL || dev == NULL)
 		return;
 
-	fz_drop_device(ctx, dev);
+	fz_try(ctx)
+		batch_flush(ctx, (fz_batched_device *)dev);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
 }
 
 /* Device Interface */
@@ -1425,26 +3061,6 @@ static void unlockNativeDevice(JNIEnv *env, NativeDeviceInfo *info)
 		info->unlock(env, info);
 }
 
-JNIEXPORT void JNICALL
-FUN(NativeDevice_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_device *dev = from_Device(env, self, ctx);
-	NativeDeviceInfo *ninfo;
-
-	if (ctx == NULL || dev == NULL)
-		return;
-
-	FUN(Device_finalize)(env, self); /* Call super.finalize() */
-
-	ninfo = CAST(NativeDeviceInfo *, (*env)->GetLongField(env, self, fid_NativeDevice_nativeInfo));
-	if (ninfo != NULL)
-	{
-		fz_drop_pixmap(ctx, ninfo->pixmap);
-		fz_free(ctx, ninfo);
-	}
-}
-
 JNIEXPORT void JNICALL
 FUN(NativeDevice_fillPath)(JNIEnv *env, jobject self, jobject jpath, jboolean even_odd, jobject jctm, jobject jcs, jfloatArray jcolor, float alpha)
 {
@@ -1905,6 +3521,46 @@ FUN(DrawDevice_newNative)(JNIEnv *env, jclass self, jobject pixmap_)
 	return jlong_cast(device);
 }
 
+JNIEXPORT jlong JNICALL
+FUN(DrawDevice_newNativeWithBbox)(JNIEnv *env, jclass self, jobject pixmap_, jint x0, jint y0, jint x1, jint y1)
+{
+	fz_context *ctx = get_context(env);
+	fz_pixmap *pixmap = from_Pixmap(env, pixmap_);
+	fz_device *device = NULL;
+	fz_irect clip;
+
+	if (ctx == NULL || pixmap == NULL)
+		return 0;
+
+	clip.x0 = x0;
+	clip.y0 = y0;
+	clip.x1 = x1;
+	clip.y1 = y1;
+
+	fz_try(ctx)
+		device = fz_new_draw_device_with_bbox(ctx, pixmap, &clip);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jlong_cast(device);
+}
+
+JNIEXPORT void JNICALL
+FUN(DrawDevice_reset)(JNIEnv *env, jobject self, jobject jpixmap)
+{
+	fz_context *ctx = get_context(env);
+	fz_device *dev = from_Device(env, self, ctx);
+	fz_pixmap *pixmap = from_Pixmap(env, jpixmap);
+
+	if (ctx == NULL || dev == NULL || pixmap == NULL)
+		return;
+
+	fz_try(ctx)
+		fz_reset_draw_device(ctx, dev, pixmap);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+}
+
 JNIEXPORT jlong JNICALL
 FUN(DisplayListDevice_newNative)(JNIEnv *env, jclass self, jobject jlist)
 {
@@ -2110,18 +3766,6 @@ FUN(Image_newImageFromBitmap)(JNIEnv *env, jobject self, jobject jbitmap, jlong
 
 /* ColorSpace Interface */
 
-JNIEXPORT void JNICALL
-FUN(ColorSpace_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_colorspace *cs = from_ColorSpace(env, self);
-
-	if (ctx == NULL || cs == NULL)
-		return;
-
-	fz_drop_colorspace(ctx, cs);
-}
-
 JNIEXPORT jint JNICALL
 FUN(ColorSpace_getNumberOfComponents)(JNIEnv *env, jobject self)
 {
@@ -2163,18 +3807,6 @@ FUN(ColorSpace_nativeDeviceCMYK)(JNIEnv *env, jobject self)
 
 /* Font interface */
 
-JNIEXPORT void JNICALL
-FUN(Font_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_font *font = from_Font(env, self);
-
-	if (ctx == NULL || font == NULL)
-		return;
-
-	fz_drop_font(ctx, font);
-}
-
 JNIEXPORT jlong JNICALL
 FUN(Font_newNative)(JNIEnv *env, jobject self, jstring jname, jint index)
 {
@@ -2257,34 +3889,65 @@ FUN(Font_advanceGlyph)(JNIEnv *env, jobject self, jint glyph, jboolean wmode)
 
 /* Pixmap Interface */
 
-JNIEXPORT void JNICALL
-FUN(Pixmap_finalize)(JNIEnv *env, jobject self)
+JNIEXPORT jlong JNICALL
+FUN(Pixmap_newNative)(JNIEnv *env, jobject self, jobject colorspace_, jint x, jint y, jint w, jint h)
 {
 	fz_context *ctx = get_context(env);
-	fz_pixmap *pixmap = from_Pixmap(env, self);
+	fz_colorspace *colorspace = from_ColorSpace(env, colorspace_);
 
-	if (ctx == NULL || pixmap == NULL)
-		return;
+	fz_pixmap *pixmap = NULL;
+
+	if (ctx == NULL)
+		return 0;
+
+	fz_try(ctx)
+	{
+		pixmap = fz_new_pixmap(ctx, colorspace, w, h);
+		pixmap->x = x;
+		pixmap->y = y;
+	}
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
 
-	fz_drop_pixmap(ctx, pixmap);
+	return jlong_cast(pixmap);
 }
 
 JNIEXPORT jlong JNICALL
-FUN(Pixmap_newNative)(JNIEnv *env, jobject self, jobject colorspace_, jint x, jint y, jint w, jint h)
+FUN(Pixmap_newNativeWithBuffer)(JNIEnv *env, jobject self, jobject colorspace_, jint x, jint y, jint w, jint h, jobject jbuffer)
 {
 	fz_context *ctx = get_context(env);
 	fz_colorspace *colorspace = from_ColorSpace(env, colorspace_);
-
+	unsigned char *samples = NULL;
+	jlong capacity = 0;
 	fz_pixmap *pixmap = NULL;
+	fz_irect bbox;
 
 	if (ctx == NULL)
 		return 0;
 
+	if (jbuffer != NULL)
+	{
+		samples = (*env)->GetDirectBufferAddress(env, jbuffer);
+		capacity = (*env)->GetDirectBufferCapacity(env, jbuffer);
+	}
+	if (samples == NULL)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "pixmap buffer must be a direct buffer");
+		return 0;
+	}
+
 	fz_try(ctx)
 	{
-		pixmap = fz_new_pixmap(ctx, colorspace, w, h);
-		pixmap->x = x;
-		pixmap->y = y;
+		int n = colorspace ? colorspace->n + 1 : 1;
+		if (w < 0 || h < 0)
+			fz_throw(ctx, FZ_ERROR_GENERIC, "Illegal dimensions for pixmap %d %d", w, h);
+		if (capacity < (jlong)w * h * n)
+			fz_throw(ctx, FZ_ERROR_GENERIC, "pixmap buffer too small");
+		bbox.x0 = x;
+		bbox.y0 = y;
+		bbox.x1 = x + w;
+		bbox.y1 = y + h;
+		pixmap = fz_new_pixmap_with_bbox_and_data(ctx, colorspace, &bbox, samples);
 	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
@@ -2478,6 +4141,25 @@ FUN(Pixmap_getSamples)(JNIEnv *env, jobject self)
 	return ary;
 }
 
+JNIEXPORT jobject JNICALL
+FUN(Pixmap_newNativeSamplesBuffer)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_pixmap *pixmap = from_Pixmap(env, self);
+	jobject jbuffer;
+
+	if (ctx == NULL || pixmap == NULL)
+		return NULL;
+
+	/* The buffer gets a reference of its own, which the java side
+	 * registers with the Cleaner against the buffer. */
+	jbuffer = (*env)->NewDirectByteBuffer(env, pixmap->samples, (jlong)pixmap->w * pixmap->h * pixmap->n);
+	if (jbuffer != NULL)
+		fz_keep_pixmap(ctx, pixmap);
+
+	return jbuffer;
+}
+
 JNIEXPORT jintArray JNICALL
 FUN(Pixmap_getPixels)(JNIEnv *env, jobject self)
 {
@@ -2506,18 +4188,6 @@ FUN(Pixmap_getPixels)(JNIEnv *env, jobject self)
 
 /* Path Interface */
 
-JNIEXPORT void JNICALL
-FUN(Path_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_path *path = from_Path(env, self);
-
-	if (ctx == NULL || path == NULL)
-		return;
-
-	fz_drop_path(ctx, path);
-}
-
 JNIEXPORT jlong JNICALL
 FUN(Path_newNative)(JNIEnv *env, jobject self)
 {
@@ -2734,60 +4404,205 @@ pathWalkCurveTo(fz_context *ctx, void *arg, float x1, float y1, float x2, float
 }
 
 static void
-pathWalkClosePath(fz_context *ctx, void *arg)
+pathWalkClosePath(fz_context *ctx, void *arg)
+{
+	path_walker_state *state = (path_walker_state *) arg;
+	JNIEnv *env = state->env;
+	(*env)->CallVoidMethod(env, state->obj, mid_PathWalker_closePath);
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java(ctx, env);
+}
+
+static const fz_path_walker java_path_walker =
+{
+	pathWalkMoveTo,
+	pathWalkLineTo,
+	pathWalkCurveTo,
+	pathWalkClosePath,
+	NULL,
+	NULL,
+	NULL,
+	NULL
+};
+
+JNIEXPORT void JNICALL
+FUN(Path_walk)(JNIEnv *env, jobject self, jobject obj)
+{
+	fz_context *ctx = get_context(env);
+	fz_path *path = from_Path(env, self);
+	path_walker_state state;
+
+	if (path == NULL || obj == NULL)
+		return;
+
+	state.env = env;
+	state.obj = obj;
+
+	fz_try(ctx)
+		fz_walk_path(ctx, path, &java_path_walker, &state);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+}
+
+/* Collect the verbs or the coordinates of a path in one go, rather than
+ * calling back into java for every segment. */
+
+typedef struct {
+	const fz_matrix *ctm;
+	int want_cmds;
+	unsigned char *cmds;
+	int cmd_len, cmd_cap;
+	float *coords;
+	int coord_len, coord_cap;
+} path_export_state;
+
+static void
+pathExportCmd(fz_context *ctx, path_export_state *state, int cmd)
+{
+	if (!state->want_cmds)
+		return;
+	if (state->cmd_len == state->cmd_cap)
+	{
+		int cap = state->cmd_cap ? state->cmd_cap * 2 : 64;
+		state->cmds = fz_resize_array(ctx, state->cmds, cap, 1);
+		state->cmd_cap = cap;
+	}
+	state->cmds[state->cmd_len++] = cmd;
+}
+
+static void
+pathExportPoint(fz_context *ctx, path_export_state *state, float x, float y)
+{
+	fz_point p;
+
+	if (state->want_cmds)
+		return;
+	if (state->coord_len + 2 > state->coord_cap)
+	{
+		int cap = state->coord_cap ? state->coord_cap * 2 : 128;
+		state->coords = fz_resize_array(ctx, state->coords, cap, sizeof(float));
+		state->coord_cap = cap;
+	}
+	p.x = x;
+	p.y = y;
+	if (state->ctm)
+		fz_transform_point(&p, state->ctm);
+	state->coords[state->coord_len++] = p.x;
+	state->coords[state->coord_len++] = p.y;
+}
+
+static void
+pathExportMoveTo(fz_context *ctx, void *arg, float x, float y)
+{
+	path_export_state *state = (path_export_state *)arg;
+	pathExportCmd(ctx, state, 'M');
+	pathExportPoint(ctx, state, x, y);
+}
+
+static void
+pathExportLineTo(fz_context *ctx, void *arg, float x, float y)
+{
+	path_export_state *state = (path_export_state *)arg;
+	pathExportCmd(ctx, state, 'L');
+	pathExportPoint(ctx, state, x, y);
+}
+
+static void
+pathExportCurveTo(fz_context *ctx, void *arg, float x1, float y1, float x2, float y2, float x3, float y3)
+{
+	path_export_state *state = (path_export_state *)arg;
+	pathExportCmd(ctx, state, 'C');
+	pathExportPoint(ctx, state, x1, y1);
+	pathExportPoint(ctx, state, x2, y2);
+	pathExportPoint(ctx, state, x3, y3);
+}
+
+static void
+pathExportClosePath(fz_context *ctx, void *arg)
 {
-	path_walker_state *state = (path_walker_state *) arg;
-	JNIEnv *env = state->env;
-	(*env)->CallVoidMethod(env, state->obj, mid_PathWalker_closePath);
-	if ((*env)->ExceptionCheck(env))
-		fz_throw_java(ctx, env);
+	path_export_state *state = (path_export_state *)arg;
+	pathExportCmd(ctx, state, 'Z');
 }
 
-static const fz_path_walker java_path_walker =
+static const fz_path_walker export_path_walker =
 {
-	pathWalkMoveTo,
-	pathWalkLineTo,
-	pathWalkCurveTo,
-	pathWalkClosePath,
+	pathExportMoveTo,
+	pathExportLineTo,
+	pathExportCurveTo,
+	pathExportClosePath,
 	NULL,
 	NULL,
 	NULL,
 	NULL
 };
 
-JNIEXPORT void JNICALL
-FUN(Path_walk)(JNIEnv *env, jobject self, jobject obj)
+JNIEXPORT jbyteArray JNICALL
+FUN(Path_getCommands)(JNIEnv *env, jobject self)
 {
 	fz_context *ctx = get_context(env);
 	fz_path *path = from_Path(env, self);
-	path_walker_state state;
+	path_export_state state = { 0 };
+	jbyteArray arr = NULL;
 
-	if (path == NULL || obj == NULL)
-		return;
+	if (ctx == NULL || path == NULL)
+		return NULL;
 
-	state.env = env;
-	state.obj = obj;
+	state.want_cmds = 1;
 
 	fz_try(ctx)
-		fz_walk_path(ctx, path, &java_path_walker, &state);
+		fz_walk_path(ctx, path, &export_path_walker, &state);
 	fz_catch(ctx)
+	{
+		fz_free(ctx, state.cmds);
 		jni_rethrow(env, ctx);
-}
+		return NULL;
+	}
 
-/* StrokeState interface */
+	arr = (*env)->NewByteArray(env, state.cmd_len);
+	if (arr != NULL)
+		(*env)->SetByteArrayRegion(env, arr, 0, state.cmd_len, (const jbyte *)state.cmds);
+	fz_free(ctx, state.cmds);
 
-JNIEXPORT void JNICALL
-FUN(StrokeState_finalize)(JNIEnv *env, jobject self)
+	return arr;
+}
+
+JNIEXPORT jfloatArray JNICALL
+FUN(Path_getCoordinates)(JNIEnv *env, jobject self, jobject jctm)
 {
 	fz_context *ctx = get_context(env);
-	fz_stroke_state *stroke = from_StrokeState(env, self);
+	fz_path *path = from_Path(env, self);
+	path_export_state state = { 0 };
+	jfloatArray arr = NULL;
+	fz_matrix ctm;
 
-	if (ctx == NULL || stroke == NULL)
-		return;
+	if (ctx == NULL || path == NULL)
+		return NULL;
+
+	if (jctm != NULL)
+	{
+		ctm = from_Matrix(env, jctm);
+		state.ctm = &ctm;
+	}
+
+	fz_try(ctx)
+		fz_walk_path(ctx, path, &export_path_walker, &state);
+	fz_catch(ctx)
+	{
+		fz_free(ctx, state.coords);
+		jni_rethrow(env, ctx);
+		return NULL;
+	}
+
+	arr = (*env)->NewFloatArray(env, state.coord_len);
+	if (arr != NULL)
+		(*env)->SetFloatArrayRegion(env, arr, 0, state.coord_len, state.coords);
+	fz_free(ctx, state.coords);
 
-	fz_drop_stroke_state(ctx, stroke);
+	return arr;
 }
 
+/* StrokeState interface */
+
 JNIEXPORT jlong JNICALL
 FUN(Path_newStrokeState)(JNIEnv *env, jobject self, jint startCap, jint dashCap, jint endCap, jint lineJoin, float lineWidth, float miterLimit, float dashPhase, jfloatArray dash)
 {
@@ -2887,18 +4702,6 @@ FUN(StrokeState_getDashes)(JNIEnv *env, jobject self)
 
 /* Text interface */
 
-JNIEXPORT void JNICALL
-FUN(Text_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_text *text = from_Text(env, self);
-
-	if (ctx == NULL || text == NULL)
-		return;
-
-	fz_drop_text(ctx, text);
-}
-
 JNIEXPORT jlong JNICALL
 FUN(Text_clone)(JNIEnv *env, jobject self)
 {
@@ -3050,20 +4853,121 @@ FUN(Text_walk)(JNIEnv *env, jobject self, jobject walker)
 	}
 }
 
-/* Image interface */
+static jobject to_GlyphRun(fz_context *ctx, JNIEnv *env, fz_text_span *span, jobject jfont)
+{
+	jobject jrun = NULL;
+	jobject jtrm = NULL;
+	jintArray jglyphs = NULL;
+	jintArray junicodes = NULL;
+	jfloatArray jx = NULL;
+	jfloatArray jy = NULL;
+	jint *glyphs = NULL;
+	jint *unicodes = NULL;
+	jfloat *x = NULL;
+	jfloat *y = NULL;
+	int i;
 
-JNIEXPORT void JNICALL
-FUN(Image_finalize)(JNIEnv *env, jobject self)
+	jtrm = (*env)->NewObject(env, cls_Matrix, mid_Matrix_init, span->trm.a, span->trm.b, span->trm.c, span->trm.d, 0.0f, 0.0f);
+	jglyphs = (*env)->NewIntArray(env, span->len);
+	junicodes = (*env)->NewIntArray(env, span->len);
+	jx = (*env)->NewFloatArray(env, span->len);
+	jy = (*env)->NewFloatArray(env, span->len);
+
+	if (jtrm && jglyphs && junicodes && jx && jy)
+	{
+		glyphs = (*env)->GetPrimitiveArrayCritical(env, jglyphs, NULL);
+		unicodes = (*env)->GetPrimitiveArrayCritical(env, junicodes, NULL);
+		x = (*env)->GetPrimitiveArrayCritical(env, jx, NULL);
+		y = (*env)->GetPrimitiveArrayCritical(env, jy, NULL);
+		if (glyphs && unicodes && x && y)
+		{
+			for (i = 0; i < span->len; i++)
+			{
+				glyphs[i] = span->items[i].gid;
+				unicodes[i] = span->items[i].ucs;
+				x[i] = span->items[i].x;
+				y[i] = span->items[i].y;
+			}
+		}
+		if (y)
+			(*env)->ReleasePrimitiveArrayCritical(env, jy, y, 0);
+		if (x)
+			(*env)->ReleasePrimitiveArrayCritical(env, jx, x, 0);
+		if (unicodes)
+			(*env)->ReleasePrimitiveArrayCritical(env, junicodes, unicodes, 0);
+		if (glyphs)
+			(*env)->ReleasePrimitiveArrayCritical(env, jglyphs, glyphs, 0);
+
+		if (glyphs && unicodes && x && y)
+			jrun = (*env)->NewObject(env, cls_GlyphRun, mid_GlyphRun_init, jfont, jtrm, (jboolean)span->wmode, jglyphs, junicodes, jx, jy);
+	}
+
+	(*env)->DeleteLocalRef(env, jy);
+	(*env)->DeleteLocalRef(env, jx);
+	(*env)->DeleteLocalRef(env, junicodes);
+	(*env)->DeleteLocalRef(env, jglyphs);
+	(*env)->DeleteLocalRef(env, jtrm);
+
+	if (jrun == NULL)
+		fz_throw_java(ctx, env);
+
+	return jrun;
+}
+
+JNIEXPORT jobjectArray JNICALL
+FUN(Text_getGlyphRuns)(JNIEnv *env, jobject self)
 {
 	fz_context *ctx = get_context(env);
-	fz_image *image = from_Image(env, self);
+	fz_text *text = from_Text(env, self);
+	fz_text_span *span;
+	fz_font *font = NULL;
+	jobject jfont = NULL;
+	jobject jrun;
+	jobjectArray jruns;
+	int count = 0;
+	int i = 0;
 
-	if (ctx == NULL || image == NULL)
-		return;
+	if (ctx == NULL || text == NULL)
+		return NULL;
+
+	for (span = text->head; span; span = span->next)
+		count++;
+
+	jruns = (*env)->NewObjectArray(env, count, cls_GlyphRun, NULL);
+	if (jruns == NULL)
+		return NULL;
+
+	fz_try(ctx)
+	{
+		for (span = text->head; span; span = span->next, i++)
+		{
+			/* Consecutive spans in the same font share the Font object. */
+			if (font != span->font)
+			{
+				if (jfont)
+					(*env)->DeleteLocalRef(env, jfont);
+				font = span->font;
+				jfont = to_Font_safe(ctx, env, font);
+				if (jfont == NULL)
+					fz_throw_java(ctx, env);
+			}
+
+			jrun = to_GlyphRun(ctx, env, span, jfont);
+			(*env)->SetObjectArrayElement(env, jruns, i, jrun);
+			(*env)->DeleteLocalRef(env, jrun);
+		}
+	}
+	fz_catch(ctx)
+	{
+		jni_rethrow(env, ctx);
+		jruns = NULL;
+	}
 
-	fz_drop_image(ctx, image);
+	return jruns;
 }
 
+/* Image interface */
+
 JNIEXPORT jlong JNICALL
 FUN(Image_newNativeFromPixmap)(JNIEnv *env, jobject self, jobject pixmap_)
 {
@@ -3197,32 +5101,8 @@ FUN(Image_toPixmap)(JNIEnv *env, jobject self, jint w, jint h)
 
 /* Outline interface */
 
-JNIEXPORT void JNICALL
-FUN(Outline_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_outline *outline = from_Outline(env, self);
-
-	if (ctx == NULL || outline == NULL)
-		return;
-
-	fz_drop_outline(ctx, outline);
-}
-
 /* Annotation Interface */
 
-JNIEXPORT void JNICALL
-FUN(Annotation_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_annot *annot = from_Annotation(env, self);
-
-	if (ctx == NULL || annot == NULL)
-		return;
-
-	fz_drop_annot(ctx, annot);
-}
-
 JNIEXPORT void JNICALL
 FUN(Annotation_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobject jcookie)
 {
@@ -3232,17 +5112,23 @@ FUN(Annotation_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobje
 	fz_device *dev = from_Device(env, jdev, ctx);
 	fz_annot *annot = from_Annotation(env, self);
 	NativeDeviceInfo *info;
+	java_cookie *limit;
 
 	if (ctx == NULL || self == NULL || jdev == NULL)
 		return;
 
 	info = lockNativeDevice(env, jdev);
+	limit = begin_limit(ctx, cookie);
 	fz_try(ctx)
 		fz_run_annot(ctx, annot, dev, &ctm, cookie);
 	fz_always(ctx)
+	{
+		end_limit(ctx, limit);
 		unlockNativeDevice(env, info);
+	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
+	jni_check_limit(env, cookie);
 }
 
 JNIEXPORT jlong JNICALL
@@ -3267,32 +5153,168 @@ FUN(Annotation_advance)(JNIEnv *env, jobject self)
 
 /* Link interface */
 
-JNIEXPORT void JNICALL
-FUN(Link_finalize)(JNIEnv *env, jobject self)
+/* Stream interface */
+
+/* A stream reading from a java RandomAccessSource through a buffer of
+ * native memory, which the source sees as a direct ByteBuffer. The
+ * ByteBuffer is made once and cleared before every read. The stream may
+ * be read from any java thread, so the env is looked up on each call
+ * rather than kept. A ProgressiveSource makes a progressive
+ * stream, which throws TRYLATER for bytes that have not arrived. */
+
+#define TRY_LATER -2 /* ProgressiveSource.TRY_LATER */
+
+typedef struct source_state_s
 {
-	fz_context *ctx = get_context(env);
-	fz_link *link = from_Link(env, self);
+	jobject source;
+	jobject jbuffer;
+	int progressive;
+	int size;
+	unsigned char *buffer;
+} source_state;
 
-	if (ctx == NULL || link == NULL)
-		return;
+static JNIEnv *get_stream_env(fz_context *ctx)
+{
+	JNIEnv *env;
 
-	fz_drop_link(ctx, link);
+	if (jvm == NULL || (*jvm)->GetEnv(jvm, (void **)&env, MY_JNI_VERSION) != JNI_OK)
+		fz_throw(ctx, FZ_ERROR_GENERIC, "cannot read java source from this thread");
+	return env;
 }
 
-/* Document interface */
+static int next_source(fz_context *ctx, fz_stream *stm, int max)
+{
+	source_state *state = stm->state;
+	JNIEnv *env = get_stream_env(ctx);
+	jobject jcleared;
+	int n;
 
-JNIEXPORT void JNICALL
-FUN(Document_finalize)(JNIEnv *env, jobject self)
+	/* max is only a hint; always fill as much of the buffer as we can */
+	jcleared = (*env)->CallObjectMethod(env, state->jbuffer, mid_Buffer_clear);
+	(*env)->DeleteLocalRef(env, jcleared);
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java_cleared(ctx, env);
+
+	n = (*env)->CallIntMethod(env, state->source, mid_RandomAccessSource_read, (jlong)stm->pos, state->jbuffer);
+	if ((*env)->ExceptionCheck(env))
+		fz_throw_java_cleared(ctx, env);
+	if (n == TRY_LATER && state->progressive)
+		fz_throw(ctx, FZ_ERROR_TRYLATER, "not enough data yet");
+
+	if (n < 0)
+		n = 0;
+	if (n > state->size)
+		n = state->size;
+	stm->rp = state->buffer;
+	stm->wp = state->buffer + n;
+	stm->pos += n;
+
+	if (n == 0)
+		return EOF;
+	return *stm->rp++;
+}
+
+static void seek_source(fz_context *ctx, fz_stream *stm, fz_off_t offset, int whence)
 {
-	fz_context *ctx = get_context(env);
-	fz_document *doc = from_Document(env, self);
+	source_state *state = stm->state;
 
-	if (ctx == NULL || doc == NULL)
-		return;
+	if (whence == SEEK_END)
+	{
+		JNIEnv *env = get_stream_env(ctx);
+		jlong size = (*env)->CallLongMethod(env, state->source, mid_RandomAccessSource_size);
+		if ((*env)->ExceptionCheck(env))
+			fz_throw_java_cleared(ctx, env);
+		offset += size;
+	}
+	else if (whence == SEEK_CUR)
+		offset += stm->pos;
+
+	if (offset < 0)
+		fz_throw(ctx, FZ_ERROR_GENERIC, "cannot seek before start of source");
+
+	/* The next read starts afresh from the new position */
+	stm->pos = offset;
+	stm->rp = state->buffer;
+	stm->wp = state->buffer;
+}
+
+static int meta_source(fz_context *ctx, fz_stream *stm, int key, int size, void *ptr)
+{
+	source_state *state = stm->state;
+	JNIEnv *env;
+	jlong length;
+
+	switch (key)
+	{
+	case FZ_STREAM_META_PROGRESSIVE:
+		return state->progressive;
+	case FZ_STREAM_META_LENGTH:
+		env = get_stream_env(ctx);
+		length = (*env)->CallLongMethod(env, state->source, mid_RandomAccessSource_size);
+		if ((*env)->ExceptionCheck(env))
+			fz_throw_java_cleared(ctx, env);
+		return length > INT_MAX ? INT_MAX : (int)length;
+	}
+	return -1;
+}
+
+static void close_source(fz_context *ctx, void *state_)
+{
+	source_state *state = state_;
+	JNIEnv *env;
+
+	if (jvm != NULL && (*jvm)->GetEnv(jvm, (void **)&env, MY_JNI_VERSION) == JNI_OK)
+	{
+		(*env)->DeleteGlobalRef(env, state->jbuffer);
+		(*env)->DeleteGlobalRef(env, state->source);
+	}
+	else
+		fz_warn(ctx, "cannot release java source from this thread");
+	fz_free(ctx, state->buffer);
+	fz_free(ctx, state);
+}
+
+static fz_stream *open_source(fz_context *ctx, JNIEnv *env, jobject jsource, int size)
+{
+	source_state *state;
+	fz_stream *stm;
+	jobject jbuffer;
+
+	state = fz_malloc_struct(ctx, source_state);
+	fz_try(ctx)
+	{
+		state->progressive = (*env)->IsInstanceOf(env, jsource, cls_ProgressiveSource);
+		state->size = size;
+		state->buffer = fz_malloc(ctx, size);
+		jbuffer = (*env)->NewDirectByteBuffer(env, state->buffer, size);
+		if (jbuffer == NULL)
+			fz_throw_java_cleared(ctx, env);
+		state->jbuffer = (*env)->NewGlobalRef(env, jbuffer);
+		(*env)->DeleteLocalRef(env, jbuffer);
+		if (state->jbuffer == NULL)
+			fz_throw(ctx, FZ_ERROR_GENERIC, "cannot reference read buffer");
+		state->source = (*env)->NewGlobalRef(env, jsource);
+		if (state->source == NULL)
+			fz_throw(ctx, FZ_ERROR_GENERIC, "cannot reference java source");
+	}
+	fz_catch(ctx)
+	{
+		if (state->jbuffer != NULL)
+			(*env)->DeleteGlobalRef(env, state->jbuffer);
+		fz_free(ctx, state->buffer);
+		fz_free(ctx, state);
+		fz_rethrow(ctx);
+	}
 
-	fz_drop_document(ctx, doc);
+	/* fz_new_stream calls close_source itself if it fails */
+	stm = fz_new_stream(ctx, state, next_source, close_source);
+	stm->seek = seek_source;
+	stm->meta = meta_source;
+	return stm;
 }
 
+/* Document interface */
+
 JNIEXPORT jlong JNICALL
 FUN(Document_newNativeWithPath)(JNIEnv *env, jobject self, jstring jfilename)
 {
@@ -3303,14 +5325,150 @@ FUN(Document_newNativeWithPath)(JNIEnv *env, jobject self, jstring jfilename)
 	if (ctx == NULL || jfilename == NULL)
 		return 0;
 
-	filename = (*env)->GetStringUTFChars(env, jfilename, NULL);
-	if (filename == NULL)
+	filename = (*env)->GetStringUTFChars(env, jfilename, NULL);
+	if (filename == NULL)
+		return 0;
+
+	fz_try(ctx)
+		document = fz_open_document(ctx, filename);
+	fz_always(ctx)
+		(*env)->ReleaseStringUTFChars(env, jfilename, filename);
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jlong_cast(document);
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Document_newNativeWithBuffer)(JNIEnv *env, jobject self, jbyteArray jbuffer, jstring jmagic)
+{
+	fz_context *ctx = get_context(env);
+	fz_document *document = NULL;
+	fz_buffer *buf = NULL;
+	fz_stream *stm = NULL;
+	const char *magic = NULL;
+	unsigned char *data = NULL;
+	jsize len;
+
+	if (ctx == NULL || jbuffer == NULL || jmagic == NULL)
+		return 0;
+
+	len = (*env)->GetArrayLength(env, jbuffer);
+
+	magic = (*env)->GetStringUTFChars(env, jmagic, NULL);
+	if (magic == NULL)
+		return 0;
+
+	fz_var(buf);
+	fz_var(stm);
+	fz_var(data);
+
+	/* The array may move, so the document gets a copy of its own. */
+	fz_try(ctx)
+	{
+		data = fz_malloc(ctx, len);
+		(*env)->GetByteArrayRegion(env, jbuffer, 0, len, (jbyte *)data);
+		buf = fz_new_buffer_from_data(ctx, data, len);
+		data = NULL;
+		stm = fz_open_buffer(ctx, buf);
+		document = fz_open_document_with_stream(ctx, magic, stm);
+	}
+	fz_always(ctx)
+	{
+		fz_drop_stream(ctx, stm);
+		fz_drop_buffer(ctx, buf);
+		fz_free(ctx, data);
+		(*env)->ReleaseStringUTFChars(env, jmagic, magic);
+	}
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jlong_cast(document);
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Document_newNativeWithByteBuffer)(JNIEnv *env, jobject self, jobject jbuffer, jint offset, jint len, jstring jmagic)
+{
+	fz_context *ctx = get_context(env);
+	fz_document *document = NULL;
+	fz_stream *stm = NULL;
+	const char *magic = NULL;
+	unsigned char *data;
+	jlong capacity;
+
+	if (ctx == NULL || jbuffer == NULL || jmagic == NULL)
+		return 0;
+
+	data = (*env)->GetDirectBufferAddress(env, jbuffer);
+	capacity = (*env)->GetDirectBufferCapacity(env, jbuffer);
+	if (data == NULL || capacity < 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "buffer is not a direct buffer");
+		return 0;
+	}
+	if (offset < 0 || len < 0 || offset > capacity || len > capacity - offset)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "buffer range out of bounds");
+		return 0;
+	}
+
+	magic = (*env)->GetStringUTFChars(env, jmagic, NULL);
+	if (magic == NULL)
+		return 0;
+
+	fz_var(stm);
+
+	/* The stream reads straight from the buffer; the java object keeps
+	 * the buffer alive for as long as the document. */
+	fz_try(ctx)
+	{
+		stm = fz_open_memory(ctx, data + offset, len);
+		document = fz_open_document_with_stream(ctx, magic, stm);
+	}
+	fz_always(ctx)
+	{
+		fz_drop_stream(ctx, stm);
+		(*env)->ReleaseStringUTFChars(env, jmagic, magic);
+	}
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jlong_cast(document);
+}
+
+JNIEXPORT jlong JNICALL
+FUN(Document_newNativeWithSource)(JNIEnv *env, jobject self, jobject jsource, jstring jmagic, jint readAhead)
+{
+	fz_context *ctx = get_context(env);
+	fz_document *document = NULL;
+	fz_stream *stm = NULL;
+	const char *magic = NULL;
+
+	if (ctx == NULL || jsource == NULL || jmagic == NULL)
+		return 0;
+
+	if (readAhead <= 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "read ahead size must be positive");
+		return 0;
+	}
+
+	magic = (*env)->GetStringUTFChars(env, jmagic, NULL);
+	if (magic == NULL)
 		return 0;
 
+	fz_var(stm);
+
 	fz_try(ctx)
-		document = fz_open_document(ctx, filename);
+	{
+		stm = open_source(ctx, env, jsource, readAhead);
+		document = fz_open_document_with_stream(ctx, magic, stm);
+	}
 	fz_always(ctx)
-		(*env)->ReleaseStringUTFChars(env, jfilename, filename);
+	{
+		fz_drop_stream(ctx, stm);
+		(*env)->ReleaseStringUTFChars(env, jmagic, magic);
+	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
 
@@ -3465,30 +5623,154 @@ FUN(Document_loadOutline)(JNIEnv *env, jobject self)
 	return to_Outline_safe(ctx, env, outline);
 }
 
-/* Page interface */
+/* StructuredText interface */
 
-JNIEXPORT void JNICALL
-FUN(Page_finalize)(JNIEnv *env, jobject self)
+/* The text of a page is handed to java as a handful of flat arrays
+ * rather than as one object per character. */
+static jobject to_StructuredText(fz_context *ctx, JNIEnv *env, fz_stext_page *text)
 {
-	fz_context *ctx = get_context(env);
-	fz_page *page = from_Page(env, self);
+	jobject jtext = NULL;
+	jintArray jchars = NULL, jline_starts = NULL, jblock_starts = NULL;
+	jfloatArray jchar_boxes = NULL, jline_boxes = NULL, jblock_boxes = NULL;
+	int *chars = NULL, *line_starts = NULL, *block_starts = NULL;
+	float *char_boxes = NULL, *line_boxes = NULL, *block_boxes = NULL;
+	int nchars = 0, nlines = 0, nblocks = 0;
+	int c = 0, l = 0, b = 0;
+	int block_n, i;
+	fz_stext_block *block;
+	fz_stext_line *line;
+	fz_stext_span *span;
+	fz_rect bbox;
 
-	if (ctx == NULL || page == NULL)
-		return;
+	for (block_n = 0; block_n < text->len; block_n++)
+	{
+		if (text->blocks[block_n].type != FZ_PAGE_BLOCK_TEXT)
+			continue;
+		block = text->blocks[block_n].u.text;
+		for (line = block->lines; line < block->lines + block->len; line++)
+			for (span = line->first_span; span; span = span->next)
+				nchars += span->len;
+		nlines += block->len;
+		nblocks++;
+	}
+
+	fz_var(chars);
+	fz_var(char_boxes);
+	fz_var(line_starts);
+	fz_var(line_boxes);
+	fz_var(block_starts);
+	fz_var(block_boxes);
+
+	fz_try(ctx)
+	{
+		chars = fz_malloc_array(ctx, nchars, sizeof *chars);
+		char_boxes = fz_malloc_array(ctx, nchars * 4, sizeof *char_boxes);
+		line_starts = fz_malloc_array(ctx, nlines + 1, sizeof *line_starts);
+		line_boxes = fz_malloc_array(ctx, nlines * 4, sizeof *line_boxes);
+		block_starts = fz_malloc_array(ctx, nblocks + 1, sizeof *block_starts);
+		block_boxes = fz_malloc_array(ctx, nblocks * 4, sizeof *block_boxes);
+
+		for (block_n = 0; block_n < text->len; block_n++)
+		{
+			if (text->blocks[block_n].type != FZ_PAGE_BLOCK_TEXT)
+				continue;
+			block = text->blocks[block_n].u.text;
+			block_starts[b] = l;
+			block_boxes[b*4+0] = block->bbox.x0;
+			block_boxes[b*4+1] = block->bbox.y0;
+			block_boxes[b*4+2] = block->bbox.x1;
+			block_boxes[b*4+3] = block->bbox.y1;
+			b++;
+			for (line = block->lines; line < block->lines + block->len; line++)
+			{
+				line_starts[l] = c;
+				line_boxes[l*4+0] = line->bbox.x0;
+				line_boxes[l*4+1] = line->bbox.y0;
+				line_boxes[l*4+2] = line->bbox.x1;
+				line_boxes[l*4+3] = line->bbox.y1;
+				l++;
+				for (span = line->first_span; span; span = span->next)
+				{
+					for (i = 0; i < span->len; i++)
+					{
+						fz_stext_char_bbox(ctx, &bbox, span, i);
+						chars[c] = span->text[i].c;
+						char_boxes[c*4+0] = bbox.x0;
+						char_boxes[c*4+1] = bbox.y0;
+						char_boxes[c*4+2] = bbox.x1;
+						char_boxes[c*4+3] = bbox.y1;
+						c++;
+					}
+				}
+			}
+		}
+		line_starts[l] = c;
+		block_starts[b] = l;
+
+		jchars = (*env)->NewIntArray(env, nchars);
+		jchar_boxes = (*env)->NewFloatArray(env, nchars * 4);
+		jline_starts = (*env)->NewIntArray(env, nlines + 1);
+		jline_boxes = (*env)->NewFloatArray(env, nlines * 4);
+		jblock_starts = (*env)->NewIntArray(env, nblocks + 1);
+		jblock_boxes = (*env)->NewFloatArray(env, nblocks * 4);
+		if (!jchars || !jchar_boxes || !jline_starts || !jline_boxes || !jblock_starts || !jblock_boxes)
+			fz_throw_java(ctx, env);
+
+		(*env)->SetIntArrayRegion(env, jchars, 0, nchars, chars);
+		(*env)->SetFloatArrayRegion(env, jchar_boxes, 0, nchars * 4, char_boxes);
+		(*env)->SetIntArrayRegion(env, jline_starts, 0, nlines + 1, line_starts);
+		(*env)->SetFloatArrayRegion(env, jline_boxes, 0, nlines * 4, line_boxes);
+		(*env)->SetIntArrayRegion(env, jblock_starts, 0, nblocks + 1, block_starts);
+		(*env)->SetFloatArrayRegion(env, jblock_boxes, 0, nblocks * 4, block_boxes);
+
+		jtext = (*env)->NewObject(env, cls_StructuredText, mid_StructuredText_init,
+				jchars, jchar_boxes, jline_starts, jline_boxes, jblock_starts, jblock_boxes);
+		if (jtext == NULL)
+			fz_throw_java(ctx, env);
+	}
+	fz_always(ctx)
+	{
+		fz_free(ctx, chars);
+		fz_free(ctx, char_boxes);
+		fz_free(ctx, line_starts);
+		fz_free(ctx, line_boxes);
+		fz_free(ctx, block_starts);
+		fz_free(ctx, block_boxes);
+		(*env)->DeleteLocalRef(env, jchars);
+		(*env)->DeleteLocalRef(env, jchar_boxes);
+		(*env)->DeleteLocalRef(env, jline_starts);
+		(*env)->DeleteLocalRef(env, jline_boxes);
+		(*env)->DeleteLocalRef(env, jblock_starts);
+		(*env)->DeleteLocalRef(env, jblock_boxes);
+	}
+	fz_catch(ctx)
+		fz_rethrow(ctx);
 
-	fz_drop_page(ctx, page);
+	return jtext;
 }
 
+/* Page interface */
+
 JNIEXPORT jobject JNICALL
-FUN(Page_toPixmap)(JNIEnv *env, jobject self, jobject ctm_, jobject colorspace_)
+FUN(Page_toPixmapWithMatrix)(JNIEnv *env, jobject self, jfloat a, jfloat b, jfloat c, jfloat d, jfloat e, jfloat f, jobject colorspace_)
 {
 	fz_context *ctx = get_context(env);
 	fz_page *page = from_Page(env, self);
 	fz_colorspace *colorspace = from_ColorSpace(env, colorspace_);
-	fz_matrix ctm = from_Matrix(env, ctm_);
+	fz_matrix ctm;
 
 	fz_pixmap *pixmap = NULL;
 
+	if (ctx == NULL || page == NULL)
+		return NULL;
+
+	ctm.a = a;
+	ctm.b = b;
+	ctm.c = c;
+	ctm.d = d;
+	ctm.e = e;
+	ctm.f = f;
+
 	fz_try(ctx)
 		pixmap = fz_new_pixmap_from_page(ctx, page, &ctm, colorspace);
 	fz_catch(ctx)
@@ -3497,6 +5779,120 @@ FUN(Page_toPixmap)(JNIEnv *env, jobject self, jobject ctm_, jobject colorspace_)
 	return to_Pixmap_safe(ctx, env, pixmap);
 }
 
+JNIEXPORT jobject JNICALL
+FUN(Page_toStructuredText)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_page *page = from_Page(env, self);
+	fz_stext_sheet *sheet = NULL;
+	fz_stext_page *text = NULL;
+	jobject jtext = NULL;
+
+	if (ctx == NULL || page == NULL)
+		return NULL;
+
+	fz_var(sheet);
+	fz_var(text);
+
+	fz_try(ctx)
+	{
+		sheet = fz_new_stext_sheet(ctx);
+		text = fz_new_stext_page_from_page(ctx, page, sheet);
+		jtext = to_StructuredText(ctx, env, text);
+	}
+	fz_always(ctx)
+	{
+		fz_drop_stext_page(ctx, text);
+		fz_drop_stext_sheet(ctx, sheet);
+	}
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+
+	return jtext;
+}
+
+JNIEXPORT jobjectArray JNICALL
+FUN(Page_search)(JNIEnv *env, jobject self, jstring jneedle, jint hit_max, jobject jcookie)
+{
+	fz_context *ctx = get_context(env);
+	fz_page *page = from_Page(env, self);
+	fz_cookie *cookie = from_Cookie(env, jcookie);
+	fz_stext_sheet *sheet = NULL;
+	fz_stext_page *text = NULL;
+	fz_device *dev = NULL;
+	fz_rect *hits = NULL;
+	const char *needle = NULL;
+	jobjectArray jhits = NULL;
+	jobject jrect;
+	java_cookie *limit;
+	int i, n = 0;
+
+	if (ctx == NULL || page == NULL || jneedle == NULL)
+		return NULL;
+
+	if (hit_max <= 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "hit_max must be positive");
+		return NULL;
+	}
+
+	needle = (*env)->GetStringUTFChars(env, jneedle, NULL);
+	if (needle == NULL)
+		return NULL;
+
+	fz_var(sheet);
+	fz_var(text);
+	fz_var(dev);
+	fz_var(hits);
+
+	/* This is fz_search_page, except that the text extraction can be
+	 * aborted through the cookie. */
+	limit = begin_limit(ctx, cookie);
+	fz_try(ctx)
+	{
+		hits = fz_malloc_array(ctx, hit_max, sizeof *hits);
+		sheet = fz_new_stext_sheet(ctx);
+		text = fz_new_stext_page(ctx);
+		dev = fz_new_stext_device(ctx, sheet, text);
+		fz_run_page(ctx, page, dev, &fz_identity, cookie);
+		fz_drop_device(ctx, dev);
+		dev = NULL;
+
+		if (cookie == NULL || !cookie->abort)
+			n = fz_search_stext_page(ctx, text, needle, hits, hit_max);
+
+		jhits = (*env)->NewObjectArray(env, n, cls_Rect, NULL);
+		if (jhits == NULL)
+			fz_throw_java(ctx, env);
+		for (i = 0; i < n; i++)
+		{
+			jrect = to_Rect(ctx, env, &hits[i]);
+			(*env)->SetObjectArrayElement(env, jhits, i, jrect);
+			(*env)->DeleteLocalRef(env, jrect);
+		}
+	}
+	fz_always(ctx)
+	{
+		fz_drop_device(ctx, dev);
+		fz_drop_stext_page(ctx, text);
+		fz_drop_stext_sheet(ctx, sheet);
+		fz_free(ctx, hits);
+		(*env)->ReleaseStringUTFChars(env, jneedle, needle);
+		end_limit(ctx, limit);
+	}
+	fz_catch(ctx)
+	{
+		jni_rethrow(env, ctx);
+		jhits = NULL;
+	}
+
+	jni_check_limit(env, cookie);
+	if ((*env)->ExceptionCheck(env))
+		return NULL;
+
+	return jhits;
+}
+
 JNIEXPORT jobject JNICALL
 FUN(Page_getBounds)(JNIEnv *env, jobject self)
 {
@@ -3516,26 +5912,49 @@ FUN(Page_getBounds)(JNIEnv *env, jobject self)
 	return jrect;
 }
 
-JNIEXPORT void JNICALL
-FUN(Page_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobject jcookie)
+static void run_page(JNIEnv *env, jobject self, jobject jdev, const fz_matrix *ctm, jobject jcookie)
 {
 	fz_context *ctx = get_context(env);
-	fz_matrix ctm = from_Matrix(env, jctm);
 	fz_cookie *cookie = from_Cookie(env, jcookie);
 	fz_device *dev = from_Device(env, jdev, ctx);
 	fz_page *page = from_Page(env, self);
 	NativeDeviceInfo *info;
+	java_cookie *limit;
 
 	if (ctx == NULL || self == NULL || jdev == NULL)
 		return;
 
 	info = lockNativeDevice(env, jdev);
+	limit = begin_limit(ctx, cookie);
 	fz_try(ctx)
-		fz_run_page(ctx, page, dev, &ctm, cookie);
+		fz_run_page(ctx, page, dev, ctm, cookie);
 	fz_always(ctx)
+	{
+		end_limit(ctx, limit);
 		unlockNativeDevice(env, info);
+	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
+	jni_check_limit(env, cookie);
+}
+
+JNIEXPORT void JNICALL
+FUN(Page_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobject jcookie)
+{
+	fz_matrix ctm = from_Matrix(env, jctm);
+
+	run_page(env, self, jdev, &ctm, jcookie);
+}
+
+JNIEXPORT void JNICALL
+FUN(Page_runWithArray)(JNIEnv *env, jobject self, jobject jdev, jfloatArray jctm, jobject jcookie)
+{
+	fz_matrix ctm;
+
+	if (!from_jfloatArray_Matrix(env, jctm, &ctm))
+		return;
+
+	run_page(env, self, jdev, &ctm, jcookie);
 }
 
 JNIEXPORT void JNICALL
@@ -3547,17 +5966,23 @@ FUN(Page_runPageContents)(JNIEnv *env, jobject self, jobject jdev, jobject jctm,
 	fz_device *dev = from_Device(env, jdev, ctx);
 	fz_page *page = from_Page(env, self);
 	NativeDeviceInfo *info;
+	java_cookie *limit;
 
 	if (ctx == NULL || page == NULL || dev == NULL)
 		return;
 
 	info = lockNativeDevice(env, jdev);
+	limit = begin_limit(ctx, cookie);
 	fz_try(ctx)
 		fz_run_page_contents(ctx, page, dev, &ctm, cookie);
 	fz_always(ctx)
+	{
+		end_limit(ctx, limit);
 		unlockNativeDevice(env, info);
+	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
+	jni_check_limit(env, cookie);
 }
 
 JNIEXPORT jobject JNICALL
@@ -3624,18 +6049,6 @@ FUN(Page_getAnnotations)(JNIEnv *env, jobject self)
 
 /* Cookie interface */
 
-JNIEXPORT void JNICALL
-FUN(Cookie_finalize)(JNIEnv *env, jobject self)
-{
-	fz_context *ctx = get_context(env);
-	fz_cookie *cookie = from_Cookie(env, self);
-
-	if (ctx == NULL || cookie == NULL)
-		return;
-
-	fz_free(ctx, cookie);
-}
-
 JNIEXPORT jlong JNICALL
 FUN(Cookie_newNative)(JNIEnv *env, jobject self)
 {
@@ -3646,13 +6059,36 @@ FUN(Cookie_newNative)(JNIEnv *env, jobject self)
 		return 0;
 
 	fz_try(ctx)
-		cookie = fz_malloc_struct(ctx, fz_cookie);
+		cookie = &fz_malloc_struct(ctx, java_cookie)->cookie;
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
 
 	return jlong_cast(cookie);
 }
 
+JNIEXPORT void JNICALL
+FUN(Cookie_setMemoryLimit)(JNIEnv *env, jobject self, jlong limit)
+{
+	fz_context *ctx = get_context(env);
+	java_cookie *jc = (java_cookie *)from_Cookie(env, self);
+
+	if (ctx == NULL || jc == NULL)
+		return;
+
+	if (limit < 0)
+	{
+		jni_throw(env, FZ_ERROR_GENERIC, "memory limit must not be negative");
+		return;
+	}
+
+	(void)pthread_mutex_lock(&trace_mutex);
+	jc->limit_id = limit > 0 ? next_limit_id++ : 0;
+	jc->limit = (size_t)limit;
+	jc->used = 0;
+	jc->exceeded = 0;
+	(void)pthread_mutex_unlock(&trace_mutex);
+}
+
 JNIEXPORT void JNICALL
 FUN(Cookie_abort)(JNIEnv *env, jobject self)
 {
@@ -3665,6 +6101,78 @@ FUN(Cookie_abort)(JNIEnv *env, jobject self)
 	cookie->abort = 1;
 }
 
+JNIEXPORT jboolean JNICALL
+FUN(Cookie_isAborted)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return JNI_FALSE;
+
+	return cookie->abort ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT jint JNICALL
+FUN(Cookie_getProgress)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return 0;
+
+	return cookie->progress;
+}
+
+JNIEXPORT jint JNICALL
+FUN(Cookie_getProgressMax)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return -1;
+
+	return cookie->progress_max;
+}
+
+JNIEXPORT jint JNICALL
+FUN(Cookie_getErrors)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return 0;
+
+	return cookie->errors;
+}
+
+JNIEXPORT void JNICALL
+FUN(Cookie_setIncompleteOk)(JNIEnv *env, jobject self, jboolean ok)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return;
+
+	cookie->incomplete_ok = ok ? 1 : 0;
+}
+
+JNIEXPORT jboolean JNICALL
+FUN(Cookie_isIncomplete)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_cookie *cookie = from_Cookie(env, self);
+
+	if (ctx == NULL || cookie == NULL)
+		return JNI_FALSE;
+
+	return cookie->incomplete ? JNI_TRUE : JNI_FALSE;
+}
+
 /* DisplayList interface */
 
 JNIEXPORT jlong JNICALL
@@ -3685,21 +6193,39 @@ FUN(DisplayList_newNative)(JNIEnv *env, jobject self)
 	return jlong_cast(list);
 }
 
-JNIEXPORT void JNICALL
-FUN(DisplayList_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobject jrect, jobject jcookie)
+static void run_display_list(JNIEnv *env, jobject self, jobject jdev, const fz_matrix *ctm, const fz_rect *rect, jobject jcookie)
 {
 	fz_context *ctx = get_context(env);
 	fz_display_list *list = from_DisplayList(env, self);
-	fz_matrix ctm = from_Matrix(env, jctm);
 	fz_cookie *cookie = from_Cookie(env, jcookie);
 	fz_device *dev = from_Device(env, jdev, ctx);
 	NativeDeviceInfo *info;
-	fz_rect local_rect;
-	fz_rect *rect = NULL;
+	java_cookie *limit;
 
 	if (ctx == NULL || self == NULL || jdev == NULL || list == NULL)
 		return;
 
+	info = lockNativeDevice(env, jdev);
+	limit = begin_limit(ctx, cookie);
+	fz_try(ctx)
+		fz_run_display_list(ctx, list, dev, ctm, rect, cookie);
+	fz_always(ctx)
+	{
+		end_limit(ctx, limit);
+		unlockNativeDevice(env, info);
+	}
+	fz_catch(ctx)
+		jni_rethrow(env, ctx);
+	jni_check_limit(env, cookie);
+}
+
+JNIEXPORT void JNICALL
+FUN(DisplayList_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobject jrect, jobject jcookie)
+{
+	fz_matrix ctm = from_Matrix(env, jctm);
+	fz_rect local_rect;
+	fz_rect *rect = NULL;
+
 	/* Use a scissor rectangle if one is supplied */
 	if (jrect)
 	{
@@ -3707,23 +6233,153 @@ FUN(DisplayList_run)(JNIEnv *env, jobject self, jobject jdev, jobject jctm, jobj
 		local_rect = from_Rect(env, jrect);
 	}
 
-	info = lockNativeDevice(env, jdev);
+	run_display_list(env, self, jdev, &ctm, rect, jcookie);
+}
+
+JNIEXPORT void JNICALL
+FUN(DisplayList_runWithArrays)(JNIEnv *env, jobject self, jobject jdev, jfloatArray jctm, jfloatArray jrect, jobject jcookie)
+{
+	fz_matrix ctm;
+	fz_rect local_rect;
+	fz_rect *rect = NULL;
+
+	if (!from_jfloatArray_Matrix(env, jctm, &ctm))
+		return;
+
+	/* Use a scissor rectangle if one is supplied */
+	if (jrect)
+	{
+		rect = &local_rect;
+		if (!from_jfloatArray_Rect(env, jrect, &local_rect))
+			return;
+	}
+
+	run_display_list(env, self, jdev, &ctm, rect, jcookie);
+}
+
+JNIEXPORT jobject JNICALL
+FUN(DisplayList_toStructuredText)(JNIEnv *env, jobject self)
+{
+	fz_context *ctx = get_context(env);
+	fz_display_list *list = from_DisplayList(env, self);
+	fz_stext_sheet *sheet = NULL;
+	fz_stext_page *text = NULL;
+	jobject jtext = NULL;
+
+	if (ctx == NULL || list == NULL)
+		return NULL;
+
+	fz_var(sheet);
+	fz_var(text);
+
 	fz_try(ctx)
-		fz_run_display_list(ctx, list, dev, &ctm, rect, cookie);
+	{
+		sheet = fz_new_stext_sheet(ctx);
+		text = fz_new_stext_page_from_display_list(ctx, list, sheet);
+		jtext = to_StructuredText(ctx, env, text);
+	}
 	fz_always(ctx)
-		unlockNativeDevice(env, info);
+	{
+		fz_drop_stext_page(ctx, text);
+		fz_drop_stext_sheet(ctx, sheet);
+	}
 	fz_catch(ctx)
 		jni_rethrow(env, ctx);
-}
+
+	return jtext;
+}
+
+/* Cleaner interface */
+
+/* These match the kinds in Cleaner.java */
+enum
+{
+	CLEANER_ANNOTATION = 1,
+	CLEANER_COLORSPACE = 2,
+	CLEANER_COOKIE = 3,
+	CLEANER_DEVICE = 4,
+	CLEANER_DISPLAY_LIST = 5,
+	CLEANER_DOCUMENT = 6,
+	CLEANER_FONT = 7,
+	CLEANER_IMAGE = 8,
+	CLEANER_LINK = 9,
+	CLEANER_NATIVE_DEVICE = 10,
+	CLEANER_OUTLINE = 11,
+	CLEANER_PAGE = 12,
+	CLEANER_PATH = 13,
+	CLEANER_PIXMAP = 14,
+	CLEANER_SHADE = 15,
+	CLEANER_STROKE_STATE = 16,
+	CLEANER_TEXT = 17
+};
 
 JNIEXPORT void JNICALL
-FUN(DisplayList_finalize)(JNIEnv *env, jobject self)
+FUN(Cleaner_drop)(JNIEnv *env, jclass cls, jint kind, jlong pointer, jlong info)
 {
 	fz_context *ctx = get_context(env);
-	fz_display_list *list = from_DisplayList(env, self);
+	NativeDeviceInfo *ninfo;
 
-	if (ctx == NULL || list == NULL)
+	if (ctx == NULL || pointer == 0)
 		return;
 
-	fz_drop_display_list(ctx, list);
+	switch (kind)
+	{
+	case CLEANER_ANNOTATION:
+		fz_drop_annot(ctx, CAST(fz_annot *, pointer));
+		break;
+	case CLEANER_COLORSPACE:
+		fz_drop_colorspace(ctx, CAST(fz_colorspace *, pointer));
+		break;
+	case CLEANER_COOKIE:
+		fz_free(ctx, CAST(fz_cookie *, pointer));
+		break;
+	case CLEANER_DEVICE:
+		fz_drop_device(ctx, CAST(fz_device *, pointer));
+		break;
+	case CLEANER_DISPLAY_LIST:
+		fz_drop_display_list(ctx, CAST(fz_display_list *, pointer));
+		break;
+	case CLEANER_DOCUMENT:
+		fz_drop_document(ctx, CAST(fz_document *, pointer));
+		break;
+	case CLEANER_FONT:
+		fz_drop_font(ctx, CAST(fz_font *, pointer));
+		break;
+	case CLEANER_IMAGE:
+		fz_drop_image(ctx, CAST(fz_image *, pointer));
+		break;
+	case CLEANER_LINK:
+		fz_drop_link(ctx, CAST(fz_link *, pointer));
+		break;
+	case CLEANER_NATIVE_DEVICE:
+		fz_drop_device(ctx, CAST(fz_device *, pointer));
+		ninfo = CAST(NativeDeviceInfo *, info);
+		if (ninfo != NULL)
+		{
+			fz_drop_pixmap(ctx, ninfo->pixmap);
+			fz_free(ctx, ninfo);
+		}
+		break;
+	case CLEANER_OUTLINE:
+		fz_drop_outline(ctx, CAST(fz_outline *, pointer));
+		break;
+	case CLEANER_PAGE:
+		fz_drop_page(ctx, CAST(fz_page *, pointer));
+		break;
+	case CLEANER_PATH:
+		fz_drop_path(ctx, CAST(fz_path *, pointer));
+		break;
+	case CLEANER_PIXMAP:
+		fz_drop_pixmap(ctx, CAST(fz_pixmap *, pointer));
+		break;
+	case CLEANER_SHADE:
+		fz_drop_shade(ctx, CAST(fz_shade *, pointer));
+		break;
+	case CLEANER_STROKE_STATE:
+		fz_drop_stroke_state(ctx, CAST(fz_stroke_state *, pointer));
+		break;
+	case CLEANER_TEXT:
+		fz_drop_text(ctx, CAST(fz_text *, pointer));
+		break;
+	}
 }
@@ -7,14 +7,6 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Annotation
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Annotation_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Annotation
  * Method:    run
@@ -35,21 +27,210 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Annotation_advance
 }
 #endif
 #endif
-/* Header for class com_artifex_mupdf_fitz_ColorSpace */
+/* Header for class com_artifex_mupdf_fitz_BatchedDevice */
 
-#ifndef _Included_com_artifex_mupdf_fitz_ColorSpace
-#define _Included_com_artifex_mupdf_fitz_ColorSpace
+#ifndef _Included_com_artifex_mupdf_fitz_BatchedDevice
+#define _Included_com_artifex_mupdf_fitz_BatchedDevice
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_MASK
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_MASK 1L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_COLOR
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_COLOR 2L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_UNCACHEABLE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_UNCACHEABLE 4L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_FILLCOLOR_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_FILLCOLOR_UNDEFINED 8L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_STROKECOLOR_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_STROKECOLOR_UNDEFINED 16L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_STARTCAP_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_STARTCAP_UNDEFINED 32L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_DASHCAP_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_DASHCAP_UNDEFINED 64L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_ENDCAP_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_ENDCAP_UNDEFINED 128L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_LINEJOIN_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_LINEJOIN_UNDEFINED 256L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_MITERLIMIT_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_MITERLIMIT_UNDEFINED 512L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_LINEWIDTH_UNDEFINED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_DEVFLAG_LINEWIDTH_UNDEFINED 1024L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_NORMAL
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_NORMAL 0L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_MULTIPLY
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_MULTIPLY 1L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SCREEN
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SCREEN 2L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_OVERLAY
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_OVERLAY 3L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_DARKEN
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_DARKEN 4L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_LIGHTEN
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_LIGHTEN 5L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR_DODGE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR_DODGE 6L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR_BURN
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR_BURN 7L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_HARD_LIGHT
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_HARD_LIGHT 8L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SOFT_LIGHT
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SOFT_LIGHT 9L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_DIFFERENCE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_DIFFERENCE 10L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_EXCLUSION
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_EXCLUSION 11L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_HUE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_HUE 12L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SATURATION
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_SATURATION 13L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_COLOR 14L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_LUMINOSITY
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_LUMINOSITY 15L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_MODEMASK
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_MODEMASK 15L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_ISOLATED
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_ISOLATED 16L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_KNOCKOUT
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_BLEND_KNOCKOUT 32L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_IGNORE_IMAGE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_IGNORE_IMAGE 1L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FZ_IGNORE_SHADE
+#define com_artifex_mupdf_fitz_BatchedDevice_FZ_IGNORE_SHADE 2L
+#undef com_artifex_mupdf_fitz_BatchedDevice_DEFAULT_BUFFER_SIZE
+#define com_artifex_mupdf_fitz_BatchedDevice_DEFAULT_BUFFER_SIZE 65536L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FILL_PATH
+#define com_artifex_mupdf_fitz_BatchedDevice_FILL_PATH 1L
+#undef com_artifex_mupdf_fitz_BatchedDevice_STROKE_PATH
+#define com_artifex_mupdf_fitz_BatchedDevice_STROKE_PATH 2L
+#undef com_artifex_mupdf_fitz_BatchedDevice_CLIP_PATH
+#define com_artifex_mupdf_fitz_BatchedDevice_CLIP_PATH 3L
+#undef com_artifex_mupdf_fitz_BatchedDevice_CLIP_STROKE_PATH
+#define com_artifex_mupdf_fitz_BatchedDevice_CLIP_STROKE_PATH 4L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FILL_TEXT
+#define com_artifex_mupdf_fitz_BatchedDevice_FILL_TEXT 5L
+#undef com_artifex_mupdf_fitz_BatchedDevice_STROKE_TEXT
+#define com_artifex_mupdf_fitz_BatchedDevice_STROKE_TEXT 6L
+#undef com_artifex_mupdf_fitz_BatchedDevice_CLIP_TEXT
+#define com_artifex_mupdf_fitz_BatchedDevice_CLIP_TEXT 7L
+#undef com_artifex_mupdf_fitz_BatchedDevice_CLIP_STROKE_TEXT
+#define com_artifex_mupdf_fitz_BatchedDevice_CLIP_STROKE_TEXT 8L
+#undef com_artifex_mupdf_fitz_BatchedDevice_IGNORE_TEXT
+#define com_artifex_mupdf_fitz_BatchedDevice_IGNORE_TEXT 9L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FILL_SHADE
+#define com_artifex_mupdf_fitz_BatchedDevice_FILL_SHADE 10L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FILL_IMAGE
+#define com_artifex_mupdf_fitz_BatchedDevice_FILL_IMAGE 11L
+#undef com_artifex_mupdf_fitz_BatchedDevice_FILL_IMAGE_MASK
+#define com_artifex_mupdf_fitz_BatchedDevice_FILL_IMAGE_MASK 12L
+#undef com_artifex_mupdf_fitz_BatchedDevice_CLIP_IMAGE_MASK
+#define com_artifex_mupdf_fitz_BatchedDevice_CLIP_IMAGE_MASK 13L
+#undef com_artifex_mupdf_fitz_BatchedDevice_POP_CLIP
+#define com_artifex_mupdf_fitz_BatchedDevice_POP_CLIP 14L
+#undef com_artifex_mupdf_fitz_BatchedDevice_BEGIN_MASK
+#define com_artifex_mupdf_fitz_BatchedDevice_BEGIN_MASK 15L
+#undef com_artifex_mupdf_fitz_BatchedDevice_END_MASK
+#define com_artifex_mupdf_fitz_BatchedDevice_END_MASK 16L
+#undef com_artifex_mupdf_fitz_BatchedDevice_BEGIN_GROUP
+#define com_artifex_mupdf_fitz_BatchedDevice_BEGIN_GROUP 17L
+#undef com_artifex_mupdf_fitz_BatchedDevice_END_GROUP
+#define com_artifex_mupdf_fitz_BatchedDevice_END_GROUP 18L
+#undef com_artifex_mupdf_fitz_BatchedDevice_BEGIN_TILE
+#define com_artifex_mupdf_fitz_BatchedDevice_BEGIN_TILE 19L
+#undef com_artifex_mupdf_fitz_BatchedDevice_END_TILE
+#define com_artifex_mupdf_fitz_BatchedDevice_END_TILE 20L
+/*
+ * Class:     com_artifex_mupdf_fitz_BatchedDevice
+ * Method:    newNativeBatchedDevice
+ * Signature: (I)J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_BatchedDevice_newNativeBatchedDevice
+  (JNIEnv *, jobject, jint);
+
 /*
- * Class:     com_artifex_mupdf_fitz_ColorSpace
- * Method:    finalize
+ * Class:     com_artifex_mupdf_fitz_BatchedDevice
+ * Method:    flush
  * Signature: ()V
  */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_ColorSpace_finalize
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_BatchedDevice_flush
   (JNIEnv *, jobject);
 
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_ChannelSource */
+
+#ifndef _Included_com_artifex_mupdf_fitz_ChannelSource
+#define _Included_com_artifex_mupdf_fitz_ChannelSource
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_Cleaner */
+
+#ifndef _Included_com_artifex_mupdf_fitz_Cleaner
+#define _Included_com_artifex_mupdf_fitz_Cleaner
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef com_artifex_mupdf_fitz_Cleaner_ANNOTATION
+#define com_artifex_mupdf_fitz_Cleaner_ANNOTATION 1L
+#undef com_artifex_mupdf_fitz_Cleaner_COLORSPACE
+#define com_artifex_mupdf_fitz_Cleaner_COLORSPACE 2L
+#undef com_artifex_mupdf_fitz_Cleaner_COOKIE
+#define com_artifex_mupdf_fitz_Cleaner_COOKIE 3L
+#undef com_artifex_mupdf_fitz_Cleaner_DEVICE
+#define com_artifex_mupdf_fitz_Cleaner_DEVICE 4L
+#undef com_artifex_mupdf_fitz_Cleaner_DISPLAY_LIST
+#define com_artifex_mupdf_fitz_Cleaner_DISPLAY_LIST 5L
+#undef com_artifex_mupdf_fitz_Cleaner_DOCUMENT
+#define com_artifex_mupdf_fitz_Cleaner_DOCUMENT 6L
+#undef com_artifex_mupdf_fitz_Cleaner_FONT
+#define com_artifex_mupdf_fitz_Cleaner_FONT 7L
+#undef com_artifex_mupdf_fitz_Cleaner_IMAGE
+#define com_artifex_mupdf_fitz_Cleaner_IMAGE 8L
+#undef com_artifex_mupdf_fitz_Cleaner_LINK
+#define com_artifex_mupdf_fitz_Cleaner_LINK 9L
+#undef com_artifex_mupdf_fitz_Cleaner_NATIVE_DEVICE
+#define com_artifex_mupdf_fitz_Cleaner_NATIVE_DEVICE 10L
+#undef com_artifex_mupdf_fitz_Cleaner_OUTLINE
+#define com_artifex_mupdf_fitz_Cleaner_OUTLINE 11L
+#undef com_artifex_mupdf_fitz_Cleaner_PAGE
+#define com_artifex_mupdf_fitz_Cleaner_PAGE 12L
+#undef com_artifex_mupdf_fitz_Cleaner_PATH
+#define com_artifex_mupdf_fitz_Cleaner_PATH 13L
+#undef com_artifex_mupdf_fitz_Cleaner_PIXMAP
+#define com_artifex_mupdf_fitz_Cleaner_PIXMAP 14L
+#undef com_artifex_mupdf_fitz_Cleaner_SHADE
+#define com_artifex_mupdf_fitz_Cleaner_SHADE 15L
+#undef com_artifex_mupdf_fitz_Cleaner_STROKE_STATE
+#define com_artifex_mupdf_fitz_Cleaner_STROKE_STATE 16L
+#undef com_artifex_mupdf_fitz_Cleaner_TEXT
+#define com_artifex_mupdf_fitz_Cleaner_TEXT 17L
+/*
+ * Class:     com_artifex_mupdf_fitz_Cleaner
+ * Method:    drop
+ * Signature: (IJJ)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Cleaner_drop
+  (JNIEnv *, jclass, jint, jlong, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_ColorSpace */
+
+#ifndef _Included_com_artifex_mupdf_fitz_ColorSpace
+#define _Included_com_artifex_mupdf_fitz_ColorSpace
+#ifdef __cplusplus
+extern "C" {
+#endif
 /*
  * Class:     com_artifex_mupdf_fitz_ColorSpace
  * Method:    nativeDeviceGray
@@ -104,9 +285,81 @@ extern "C" {
 /*
  * Class:     com_artifex_mupdf_fitz_Context
  * Method:    initNative
- * Signature: ()I
+ * Signature: (Z)I
  */
 JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Context_initNative
+  (JNIEnv *, jclass, jboolean);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    setStoreSize
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Context_setStoreSize
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    getStoreSize
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Context_getStoreSize
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    getStoreUsage
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Context_getStoreUsage
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    shrinkStore
+ * Signature: (I)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_artifex_mupdf_fitz_Context_shrinkStore
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    getStoreStatistics
+ * Signature: ()[Lcom/artifex/mupdf/fitz/StoreStatistics;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_artifex_mupdf_fitz_Context_getStoreStatistics
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    resetStoreStatistics
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Context_resetStoreStatistics
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    getNativeMemoryStats
+ * Signature: ([J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_artifex_mupdf_fitz_Context_getNativeMemoryStats
+  (JNIEnv *, jclass, jlongArray);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    setAntiAliasLevel
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Context_setAntiAliasLevel
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Context
+ * Method:    getAntiAliasLevel
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Context_getAntiAliasLevel
   (JNIEnv *, jclass);
 
 #ifdef __cplusplus
@@ -120,14 +373,6 @@ JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Context_initNative
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Cookie
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Cookie_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Cookie
  * Method:    newNative
@@ -144,6 +389,62 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Cookie_newNative
 JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Cookie_abort
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    isAborted
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_artifex_mupdf_fitz_Cookie_isAborted
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    getProgress
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Cookie_getProgress
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    getProgressMax
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Cookie_getProgressMax
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    getErrors
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Cookie_getErrors
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    setIncompleteOk
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Cookie_setIncompleteOk
+  (JNIEnv *, jobject, jboolean);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    isIncomplete
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_artifex_mupdf_fitz_Cookie_isIncomplete
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Cookie
+ * Method:    setMemoryLimit
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Cookie_setMemoryLimit
+  (JNIEnv *, jobject, jlong);
+
 #ifdef __cplusplus
 }
 #endif
@@ -219,14 +520,6 @@ extern "C" {
 #define com_artifex_mupdf_fitz_Device_FZ_IGNORE_IMAGE 1L
 #undef com_artifex_mupdf_fitz_Device_FZ_IGNORE_SHADE
 #define com_artifex_mupdf_fitz_Device_FZ_IGNORE_SHADE 2L
-/*
- * Class:     com_artifex_mupdf_fitz_Device
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Device_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Device
  * Method:    newNative
@@ -259,6 +552,14 @@ JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Device_enableDeviceHints
 JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Device_disableDeviceHints
   (JNIEnv *, jobject, jint);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Device
+ * Method:    setReuseArguments
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Device_setReuseArguments
+  (JNIEnv *, jobject, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
@@ -270,14 +571,6 @@ JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Device_disableDeviceHints
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_DisplayList
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_DisplayList_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_DisplayList
  * Method:    newNative
@@ -294,6 +587,22 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_DisplayList_newNative
 JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_DisplayList_run
   (JNIEnv *, jobject, jobject, jobject, jobject, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_DisplayList
+ * Method:    runWithArrays
+ * Signature: (Lcom/artifex/mupdf/fitz/Device;[F[FLcom/artifex/mupdf/fitz/Cookie;)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_DisplayList_runWithArrays
+  (JNIEnv *, jobject, jobject, jfloatArray, jfloatArray, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_DisplayList
+ * Method:    toStructuredText
+ * Signature: ()Lcom/artifex/mupdf/fitz/StructuredText;
+ */
+JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_DisplayList_toStructuredText
+  (JNIEnv *, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -388,14 +697,6 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_DisplayListDevice_newNative
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Document
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Document_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Document
  * Method:    newNativeWithPath
@@ -412,6 +713,22 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Document_newNativeWithPath
 JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Document_newNativeWithBuffer
   (JNIEnv *, jobject, jbyteArray, jstring);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Document
+ * Method:    newNativeWithByteBuffer
+ * Signature: (Ljava/nio/ByteBuffer;IILjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Document_newNativeWithByteBuffer
+  (JNIEnv *, jobject, jobject, jint, jint, jstring);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Document
+ * Method:    newNativeWithSource
+ * Signature: (Lcom/artifex/mupdf/fitz/RandomAccessSource;Ljava/lang/String;I)J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Document_newNativeWithSource
+  (JNIEnv *, jobject, jobject, jstring, jint);
+
 /*
  * Class:     com_artifex_mupdf_fitz_Document
  * Method:    needsPassword
@@ -468,6 +785,28 @@ JNIEXPORT jstring JNICALL Java_com_artifex_mupdf_fitz_Document_getMetaData
 JNIEXPORT jboolean JNICALL Java_com_artifex_mupdf_fitz_Document_isUnencryptedPDF
   (JNIEnv *, jobject);
 
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_DocumentRasterizer */
+
+#ifndef _Included_com_artifex_mupdf_fitz_DocumentRasterizer
+#define _Included_com_artifex_mupdf_fitz_DocumentRasterizer
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_DocumentSearch */
+
+#ifndef _Included_com_artifex_mupdf_fitz_DocumentSearch
+#define _Included_com_artifex_mupdf_fitz_DocumentSearch
+#ifdef __cplusplus
+extern "C" {
+#endif
 #ifdef __cplusplus
 }
 #endif
@@ -551,6 +890,22 @@ extern "C" {
 JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_DrawDevice_newNative
   (JNIEnv *, jclass, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_DrawDevice
+ * Method:    newNativeWithBbox
+ * Signature: (Lcom/artifex/mupdf/fitz/Pixmap;IIII)J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_DrawDevice_newNativeWithBbox
+  (JNIEnv *, jclass, jobject, jint, jint, jint, jint);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_DrawDevice
+ * Method:    reset
+ * Signature: (Lcom/artifex/mupdf/fitz/Pixmap;)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_DrawDevice_reset
+  (JNIEnv *, jobject, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -562,14 +917,6 @@ JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_DrawDevice_newNative
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Font
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Font_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Font
  * Method:    newNative
@@ -602,6 +949,17 @@ JNIEXPORT jint JNICALL Java_com_artifex_mupdf_fitz_Font_encodeCharacter
 JNIEXPORT jfloat JNICALL Java_com_artifex_mupdf_fitz_Font_advanceGlyph
   (JNIEnv *, jobject, jint, jboolean);
 
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_GlyphRun */
+
+#ifndef _Included_com_artifex_mupdf_fitz_GlyphRun
+#define _Included_com_artifex_mupdf_fitz_GlyphRun
+#ifdef __cplusplus
+extern "C" {
+#endif
 #ifdef __cplusplus
 }
 #endif
@@ -613,14 +971,6 @@ JNIEXPORT jfloat JNICALL Java_com_artifex_mupdf_fitz_Font_advanceGlyph
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Image
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Image_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Image
  * Method:    newNativeFromPixmap
@@ -728,14 +1078,6 @@ JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Image_toPixmap
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Link
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Link_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Link
  * Method:    getNext
@@ -759,6 +1101,28 @@ extern "C" {
 }
 #endif
 #endif
+/* Header for class com_artifex_mupdf_fitz_MemoryLimitException */
+
+#ifndef _Included_com_artifex_mupdf_fitz_MemoryLimitException
+#define _Included_com_artifex_mupdf_fitz_MemoryLimitException
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_MemoryStats */
+
+#ifndef _Included_com_artifex_mupdf_fitz_MemoryStats
+#define _Included_com_artifex_mupdf_fitz_MemoryStats
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
 /* Header for class com_artifex_mupdf_fitz_NativeDevice */
 
 #ifndef _Included_com_artifex_mupdf_fitz_NativeDevice
@@ -830,14 +1194,6 @@ extern "C" {
 #define com_artifex_mupdf_fitz_NativeDevice_FZ_IGNORE_IMAGE 1L
 #undef com_artifex_mupdf_fitz_NativeDevice_FZ_IGNORE_SHADE
 #define com_artifex_mupdf_fitz_NativeDevice_FZ_IGNORE_SHADE 2L
-/*
- * Class:     com_artifex_mupdf_fitz_NativeDevice
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_NativeDevice_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_NativeDevice
  * Method:    fillPath
@@ -1009,14 +1365,6 @@ JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_NativeDevice_endTile
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Outline
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Outline_finalize
-  (JNIEnv *, jobject);
-
 #ifdef __cplusplus
 }
 #endif
@@ -1030,27 +1378,35 @@ extern "C" {
 #endif
 /*
  * Class:     com_artifex_mupdf_fitz_Page
- * Method:    finalize
- * Signature: ()V
+ * Method:    getBounds
+ * Signature: ()Lcom/artifex/mupdf/fitz/Rect;
  */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Page_finalize
+JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Page_getBounds
   (JNIEnv *, jobject);
 
 /*
  * Class:     com_artifex_mupdf_fitz_Page
- * Method:    getBounds
- * Signature: ()Lcom/artifex/mupdf/fitz/Rect;
+ * Method:    toPixmapWithMatrix
+ * Signature: (FFFFFFLcom/artifex/mupdf/fitz/ColorSpace;)Lcom/artifex/mupdf/fitz/Pixmap;
  */
-JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Page_getBounds
+JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Page_toPixmapWithMatrix
+  (JNIEnv *, jobject, jfloat, jfloat, jfloat, jfloat, jfloat, jfloat, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Page
+ * Method:    toStructuredText
+ * Signature: ()Lcom/artifex/mupdf/fitz/StructuredText;
+ */
+JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Page_toStructuredText
   (JNIEnv *, jobject);
 
 /*
  * Class:     com_artifex_mupdf_fitz_Page
- * Method:    toPixmap
- * Signature: (Lcom/artifex/mupdf/fitz/Matrix;Lcom/artifex/mupdf/fitz/ColorSpace;)Lcom/artifex/mupdf/fitz/Pixmap;
+ * Method:    search
+ * Signature: (Ljava/lang/String;ILcom/artifex/mupdf/fitz/Cookie;)[Lcom/artifex/mupdf/fitz/Rect;
  */
-JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Page_toPixmap
-  (JNIEnv *, jobject, jobject, jobject);
+JNIEXPORT jobjectArray JNICALL Java_com_artifex_mupdf_fitz_Page_search
+  (JNIEnv *, jobject, jstring, jint, jobject);
 
 /*
  * Class:     com_artifex_mupdf_fitz_Page
@@ -1076,6 +1432,14 @@ JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Page_runPageContents
 JNIEXPORT jobjectArray JNICALL Java_com_artifex_mupdf_fitz_Page_getAnnotations
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Page
+ * Method:    runWithArray
+ * Signature: (Lcom/artifex/mupdf/fitz/Device;[FLcom/artifex/mupdf/fitz/Cookie;)V
+ */
+JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Page_runWithArray
+  (JNIEnv *, jobject, jobject, jfloatArray, jobject);
+
 /*
  * Class:     com_artifex_mupdf_fitz_Page
  * Method:    getLinks
@@ -1095,14 +1459,6 @@ JNIEXPORT jobjectArray JNICALL Java_com_artifex_mupdf_fitz_Page_getLinks
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Path
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Path_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Path
  * Method:    newNative
@@ -1199,6 +1555,22 @@ JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Path_getBounds
 JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Path_walk
   (JNIEnv *, jobject, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Path
+ * Method:    getCommands
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_com_artifex_mupdf_fitz_Path_getCommands
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Path
+ * Method:    getCoordinates
+ * Signature: (Lcom/artifex/mupdf/fitz/Matrix;)[F
+ */
+JNIEXPORT jfloatArray JNICALL Java_com_artifex_mupdf_fitz_Path_getCoordinates
+  (JNIEnv *, jobject, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -1221,14 +1593,6 @@ extern "C" {
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Pixmap
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Pixmap_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Pixmap
  * Method:    newNative
@@ -1237,6 +1601,22 @@ JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Pixmap_finalize
 JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Pixmap_newNative
   (JNIEnv *, jobject, jobject, jint, jint, jint, jint);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Pixmap
+ * Method:    newNativeWithBuffer
+ * Signature: (Lcom/artifex/mupdf/fitz/ColorSpace;IIIILjava/nio/ByteBuffer;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_artifex_mupdf_fitz_Pixmap_newNativeWithBuffer
+  (JNIEnv *, jobject, jobject, jint, jint, jint, jint, jobject);
+
+/*
+ * Class:     com_artifex_mupdf_fitz_Pixmap
+ * Method:    newNativeSamplesBuffer
+ * Signature: ()Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Pixmap_newNativeSamplesBuffer
+  (JNIEnv *, jobject);
+
 /*
  * Class:     com_artifex_mupdf_fitz_Pixmap
  * Method:    clear
@@ -1333,6 +1713,17 @@ JNIEXPORT jbyteArray JNICALL Java_com_artifex_mupdf_fitz_Pixmap_getSamples
 JNIEXPORT jintArray JNICALL Java_com_artifex_mupdf_fitz_Pixmap_getPixels
   (JNIEnv *, jobject);
 
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_PixmapPool */
+
+#ifndef _Included_com_artifex_mupdf_fitz_PixmapPool
+#define _Included_com_artifex_mupdf_fitz_PixmapPool
+#ifdef __cplusplus
+extern "C" {
+#endif
 #ifdef __cplusplus
 }
 #endif
@@ -1348,6 +1739,61 @@ extern "C" {
 }
 #endif
 #endif
+/* Header for class com_artifex_mupdf_fitz_PreviewListener */
+
+#ifndef _Included_com_artifex_mupdf_fitz_PreviewListener
+#define _Included_com_artifex_mupdf_fitz_PreviewListener
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_ProgressiveBuffer */
+
+#ifndef _Included_com_artifex_mupdf_fitz_ProgressiveBuffer
+#define _Included_com_artifex_mupdf_fitz_ProgressiveBuffer
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_ProgressiveRenderer */
+
+#ifndef _Included_com_artifex_mupdf_fitz_ProgressiveRenderer
+#define _Included_com_artifex_mupdf_fitz_ProgressiveRenderer
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_ProgressiveSource */
+
+#ifndef _Included_com_artifex_mupdf_fitz_ProgressiveSource
+#define _Included_com_artifex_mupdf_fitz_ProgressiveSource
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_RandomAccessSource */
+
+#ifndef _Included_com_artifex_mupdf_fitz_RandomAccessSource
+#define _Included_com_artifex_mupdf_fitz_RandomAccessSource
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
 /* Header for class com_artifex_mupdf_fitz_Rect */
 
 #ifndef _Included_com_artifex_mupdf_fitz_Rect
@@ -1370,6 +1816,39 @@ extern "C" {
 }
 #endif
 #endif
+/* Header for class com_artifex_mupdf_fitz_SearchHit */
+
+#ifndef _Included_com_artifex_mupdf_fitz_SearchHit
+#define _Included_com_artifex_mupdf_fitz_SearchHit
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_SearchListener */
+
+#ifndef _Included_com_artifex_mupdf_fitz_SearchListener
+#define _Included_com_artifex_mupdf_fitz_SearchListener
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_SearchOptions */
+
+#ifndef _Included_com_artifex_mupdf_fitz_SearchOptions
+#define _Included_com_artifex_mupdf_fitz_SearchOptions
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
 /* Header for class com_artifex_mupdf_fitz_Shade */
 
 #ifndef _Included_com_artifex_mupdf_fitz_Shade
@@ -1377,14 +1856,17 @@ extern "C" {
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Shade
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Shade_finalize
-  (JNIEnv *, jobject);
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_StoreStatistics */
 
+#ifndef _Included_com_artifex_mupdf_fitz_StoreStatistics
+#define _Included_com_artifex_mupdf_fitz_StoreStatistics
+#ifdef __cplusplus
+extern "C" {
+#endif
 #ifdef __cplusplus
 }
 #endif
@@ -1412,14 +1894,6 @@ extern "C" {
 #define com_artifex_mupdf_fitz_StrokeState_FZ_LINEJOIN_BEVEL 2L
 #undef com_artifex_mupdf_fitz_StrokeState_FZ_LINEJOIN_MITER_XPS
 #define com_artifex_mupdf_fitz_StrokeState_FZ_LINEJOIN_MITER_XPS 3L
-/*
- * Class:     com_artifex_mupdf_fitz_StrokeState
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_StrokeState_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_StrokeState
  * Method:    newNative
@@ -1500,6 +1974,17 @@ JNIEXPORT jfloat JNICALL Java_com_artifex_mupdf_fitz_StrokeState_getDashPhase
 JNIEXPORT jfloatArray JNICALL Java_com_artifex_mupdf_fitz_StrokeState_getDashes
   (JNIEnv *, jobject);
 
+#ifdef __cplusplus
+}
+#endif
+#endif
+/* Header for class com_artifex_mupdf_fitz_StructuredText */
+
+#ifndef _Included_com_artifex_mupdf_fitz_StructuredText
+#define _Included_com_artifex_mupdf_fitz_StructuredText
+#ifdef __cplusplus
+extern "C" {
+#endif
 #ifdef __cplusplus
 }
 #endif
@@ -1511,14 +1996,6 @@ JNIEXPORT jfloatArray JNICALL Java_com_artifex_mupdf_fitz_StrokeState_getDashes
 #ifdef __cplusplus
 extern "C" {
 #endif
-/*
- * Class:     com_artifex_mupdf_fitz_Text
- * Method:    finalize
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Text_finalize
-  (JNIEnv *, jobject);
-
 /*
  * Class:     com_artifex_mupdf_fitz_Text
  * Method:    newNative
@@ -1567,6 +2044,14 @@ JNIEXPORT jobject JNICALL Java_com_artifex_mupdf_fitz_Text_getBounds
 JNIEXPORT void JNICALL Java_com_artifex_mupdf_fitz_Text_walk
   (JNIEnv *, jobject, jobject);
 
+/*
+ * Class:     com_artifex_mupdf_fitz_Text
+ * Method:    getGlyphRuns
+ * Signature: ()[Lcom/artifex/mupdf/fitz/GlyphRun;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_artifex_mupdf_fitz_Text_getGlyphRuns
+  (JNIEnv *, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -1582,6 +2067,17 @@ extern "C" {
 }
 #endif
 #endif
+/* Header for class com_artifex_mupdf_fitz_TiledRenderer */
+
+#ifndef _Included_com_artifex_mupdf_fitz_TiledRenderer
+#define _Included_com_artifex_mupdf_fitz_TiledRenderer
+#ifdef __cplusplus
+extern "C" {
+#endif
+#ifdef __cplusplus
+}
+#endif
+#endif
 /* Header for class com_artifex_mupdf_fitz_TryLaterException */
 
 #ifndef _Included_com_artifex_mupdf_fitz_TryLaterException
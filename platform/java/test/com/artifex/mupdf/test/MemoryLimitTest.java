@@ -0,0 +1,70 @@
+package com.artifex.mupdf.test;
+
+import com.artifex.mupdf.benchmark.TestDocuments;
+import com.artifex.mupdf.fitz.ColorSpace;
+import com.artifex.mupdf.fitz.Context;
+import com.artifex.mupdf.fitz.Cookie;
+import com.artifex.mupdf.fitz.Document;
+import com.artifex.mupdf.fitz.DrawDevice;
+import com.artifex.mupdf.fitz.Matrix;
+import com.artifex.mupdf.fitz.MemoryLimitException;
+import com.artifex.mupdf.fitz.Page;
+import com.artifex.mupdf.fitz.Pixmap;
+import com.artifex.mupdf.fitz.StoreStatistics;
+
+// Checks that a render stopped by the memory limit on its Cookie leaves
+// the store alone: the allocation that goes over the limit must fail
+// without evicting anything that other renders have cached.
+//
+// The image page is drawn once at a small scale, which keeps a reduced
+// decoded image in the store, and then again at full resolution with a
+// limit far smaller than the full size image.
+public class MemoryLimitTest
+{
+	private static final long LIMIT = 1 << 20;
+
+	public static void main(String args[]) throws Exception {
+		Context.setStoreSize(Context.STORE_UNLIMITED);
+
+		Document doc = new Document(TestDocuments.path(TestDocuments.IMAGE));
+		Page page = doc.loadPage(0);
+		page.toPixmap(new Matrix(0.25f), ColorSpace.DeviceRGB).destroy();
+
+		long usage = Context.getStoreUsage();
+		check(usage > 0, "nothing was stored by the first render");
+		Context.resetStoreStatistics();
+
+		Pixmap pixmap = new Pixmap(ColorSpace.DeviceRGB, 0, 0, 64, 64);
+		DrawDevice dev = new DrawDevice(pixmap);
+		Cookie cookie = new Cookie();
+		cookie.setMemoryLimit(LIMIT);
+		boolean limited = false;
+		try {
+			page.run(dev, new Matrix(2), cookie);
+		} catch (MemoryLimitException e) {
+			limited = true;
+		}
+		check(limited, "the render did not hit its memory limit");
+
+		int evictions = 0;
+		for (StoreStatistics stats : Context.getStoreStatistics())
+			evictions += stats.evictions;
+		check(evictions == 0, evictions + " items were evicted from the store");
+		check(Context.getStoreUsage() >= usage, "store usage fell from " + usage + " to " + Context.getStoreUsage());
+
+		cookie.destroy();
+		dev.destroy();
+		pixmap.destroy();
+		page.destroy();
+		doc.destroy();
+
+		System.out.println("MemoryLimitTest: OK");
+	}
+
+	private static void check(boolean ok, String message) {
+		if (!ok) {
+			System.err.println("MemoryLimitTest: " + message);
+			System.exit(1);
+		}
+	}
+}
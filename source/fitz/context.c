@@ -269,3 +269,9 @@ void *fz_user_context(fz_context *ctx)
 
 	return ctx->user;
 }
+
+void fz_set_scavenge_veto(fz_context *ctx, const int *veto)
+{
+	if (ctx != NULL)
+		ctx->scavenge_veto = veto;
+}
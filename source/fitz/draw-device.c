@@ -2139,6 +2139,37 @@ fz_new_draw_device_type3(fz_context *ctx, fz_pixmap *dest)
 	return (fz_device*)dev;
 }
 
+void
+fz_reset_draw_device(fz_context *ctx, fz_device *devp, fz_pixmap *dest)
+{
+	fz_draw_device *dev = (fz_draw_device*)devp;
+
+	if (devp->drop_imp != fz_draw_drop_imp)
+		fz_throw(ctx, FZ_ERROR_GENERIC, "cannot reset a device that is not a draw device");
+	if (dev->top > 0)
+		fz_throw(ctx, FZ_ERROR_GENERIC, "cannot reset draw device with items left on stack: %d", dev->top+1);
+
+	dev->stack[0].dest = dest;
+	dev->stack[0].shape = NULL;
+	dev->stack[0].mask = NULL;
+	dev->stack[0].blendmode = 0;
+	dev->stack[0].scissor.x0 = dest->x;
+	dev->stack[0].scissor.y0 = dest->y;
+	dev->stack[0].scissor.x1 = dest->x + dest->w;
+	dev->stack[0].scissor.y1 = dest->y + dest->h;
+
+	/* Forget the render flags of the previous run, such as gridfitting
+	 * for tiles, but keep the kind of device it was created as. */
+	dev->flags &= FZ_DRAWDEV_FLAGS_TYPE3;
+	devp->flags = 0;
+	devp->container_len = 0;
+
+	/* Likewise an error left over from the previous run, which would
+	 * otherwise have every call on the next one skipped. */
+	devp->error_depth = 0;
+	devp->errmess[0] = 0;
+}
+
 fz_irect *
 fz_bound_path_accurate(fz_context *ctx, fz_irect *bbox, const fz_irect *scissor, const fz_path *path, const fz_stroke_state *stroke, const fz_matrix *ctm, float flatness, float linewidth)
 {
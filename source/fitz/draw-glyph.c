@@ -34,6 +34,10 @@ struct fz_glyph_cache_s
 {
 	int refs;
 	int total;
+	int count;
+	int hits;
+	int misses;
+	int evictions;
 #ifndef NDEBUG
 	int num_evictions;
 	int evicted;
@@ -69,6 +73,7 @@ drop_glyph_cache_entry(fz_context *ctx, fz_glyph_cache_entry *entry)
 	else
 		cache->lru_head = entry->lru_next;
 	cache->total -= fz_glyph_size(ctx, entry->val);
+	cache->count--;
 	if (entry->bucket_next)
 		entry->bucket_next->bucket_prev = entry->bucket_prev;
 	if (entry->bucket_prev)
@@ -94,6 +99,7 @@ do_purge(fz_context *ctx)
 	}
 
 	cache->total = 0;
+	cache->count = 0;
 }
 
 void
@@ -295,11 +301,13 @@ fz_render_glyph(fz_context *ctx, fz_font *font, int gid, fz_matrix *ctm, fz_colo
 		{
 			move_to_front(cache, entry);
 			val = fz_keep_glyph(ctx, entry->val);
+			cache->hits++;
 			fz_unlock(ctx, FZ_LOCK_GLYPHCACHE);
 			return val;
 		}
 		entry = entry->bucket_next;
 	}
+	cache->misses++;
 
 	locked = 1;
 	caching = 0;
@@ -375,8 +383,10 @@ fz_render_glyph(fz_context *ctx, fz_font *font, int gid, fz_matrix *ctm, fz_colo
 				cache->lru_head = entry;
 
 				cache->total += fz_glyph_size(ctx, val);
+				cache->count++;
 				while (cache->total > MAX_CACHE_SIZE)
 				{
+					cache->evictions++;
 #ifndef NDEBUG
 					cache->num_evictions++;
 					cache->evicted += fz_glyph_size(ctx, cache->lru_tail->val);
@@ -448,6 +458,39 @@ fz_render_glyph_pixmap(fz_context *ctx, fz_font *font, int gid, fz_matrix *ctm,
 	return val;
 }
 
+void
+fz_glyph_cache_statistics(fz_context *ctx, fz_store_stats *stats)
+{
+	fz_glyph_cache *cache = ctx->glyph_cache;
+
+	memset(stats, 0, sizeof *stats);
+	if (cache == NULL)
+		return;
+
+	fz_lock(ctx, FZ_LOCK_GLYPHCACHE);
+	stats->count = cache->count;
+	stats->size = cache->total;
+	stats->hits = cache->hits;
+	stats->misses = cache->misses;
+	stats->evictions = cache->evictions;
+	fz_unlock(ctx, FZ_LOCK_GLYPHCACHE);
+}
+
+void
+fz_reset_glyph_cache_statistics(fz_context *ctx)
+{
+	fz_glyph_cache *cache = ctx->glyph_cache;
+
+	if (cache == NULL)
+		return;
+
+	fz_lock(ctx, FZ_LOCK_GLYPHCACHE);
+	cache->hits = 0;
+	cache->misses = 0;
+	cache->evictions = 0;
+	fz_unlock(ctx, FZ_LOCK_GLYPHCACHE);
+}
+
 void
 fz_dump_glyph_cache_stats(fz_context *ctx)
 {
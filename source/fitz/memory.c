@@ -6,6 +6,12 @@
 #undef FITZ_DEBUG_LOCKING_TIMES
 #endif
 
+static int
+scavenge_vetoed(fz_context *ctx)
+{
+	return ctx->scavenge_veto != NULL && *ctx->scavenge_veto;
+}
+
 static void *
 do_scavenging_malloc(fz_context *ctx, unsigned int size)
 {
@@ -20,7 +26,7 @@ do_scavenging_malloc(fz_context *ctx, unsigned int size)
 			fz_unlock(ctx, FZ_LOCK_ALLOC);
 			return p;
 		}
-	} while (fz_store_scavenge(ctx, size, &phase));
+	} while (!scavenge_vetoed(ctx) && fz_store_scavenge(ctx, size, &phase));
 	fz_unlock(ctx, FZ_LOCK_ALLOC);
 
 	return NULL;
@@ -40,7 +46,7 @@ do_scavenging_realloc(fz_context *ctx, void *p, unsigned int size)
 			fz_unlock(ctx, FZ_LOCK_ALLOC);
 			return q;
 		}
-	} while (fz_store_scavenge(ctx, size, &phase));
+	} while (!scavenge_vetoed(ctx) && fz_store_scavenge(ctx, size, &phase));
 	fz_unlock(ctx, FZ_LOCK_ALLOC);
 
 	return NULL;
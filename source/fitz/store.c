@@ -29,8 +29,29 @@ struct fz_store_s
 	/* We keep track of the size of the store, and keep it below max. */
 	unsigned int max;
 	unsigned int size;
+
+	/* Statistics for each kind of item, told apart by drop function. */
+	int num_stats;
+	fz_store_stats stats[FZ_STORE_STATS_MAX];
 };
 
+/* The store lock is always held when this function is called. Returns
+ * NULL once there are more kinds of item than we have room for. */
+static fz_store_stats *
+kind_stats(fz_store *store, fz_store_drop_fn *drop)
+{
+	int i;
+
+	for (i = 0; i < store->num_stats; i++)
+		if (store->stats[i].drop == drop)
+			return &store->stats[i];
+	if (i == FZ_STORE_STATS_MAX)
+		return NULL;
+	store->stats[i].drop = drop;
+	store->num_stats++;
+	return &store->stats[i];
+}
+
 void
 fz_new_store_context(fz_context *ctx, unsigned int max)
 {
@@ -85,9 +106,17 @@ static void
 evict(fz_context *ctx, fz_item *item)
 {
 	fz_store *store = ctx->store;
+	fz_store_stats *stats;
 	int drop;
 
 	store->size -= item->size;
+	stats = kind_stats(store, item->val->drop);
+	if (stats)
+	{
+		stats->count--;
+		stats->size -= item->size;
+		stats->evictions++;
+	}
 	/* Unlink from the linked list */
 	if (item->next)
 		item->next->prev = item->prev;
@@ -210,6 +239,7 @@ fz_store_item(fz_context *ctx, void *key, void *val_, unsigned int itemsize, fz_
 	unsigned int size;
 	fz_storable *val = (fz_storable *)val_;
 	fz_store *store = ctx->store;
+	fz_store_stats *stats;
 	fz_store_hash hash = { NULL };
 	int use_hash = 0;
 	unsigned pos;
@@ -328,6 +358,12 @@ fz_store_item(fz_context *ctx, void *key, void *val_, unsigned int itemsize, fz_
 		}
 	}
 	store->size += itemsize;
+	stats = kind_stats(store, val->drop);
+	if (stats)
+	{
+		stats->count++;
+		stats->size += itemsize;
+	}
 
 	/* Regardless of whether it's indexed, it goes into the linked list */
 	touch(store, item);
@@ -341,6 +377,7 @@ fz_find_item(fz_context *ctx, fz_store_drop_fn *drop, void *key, fz_store_type *
 {
 	fz_item *item;
 	fz_store *store = ctx->store;
+	fz_store_stats *stats;
 	fz_store_hash hash = { NULL };
 	int use_hash = 0;
 
@@ -371,6 +408,14 @@ fz_find_item(fz_context *ctx, fz_store_drop_fn *drop, void *key, fz_store_type *
 				break;
 		}
 	}
+	stats = kind_stats(store, drop);
+	if (stats)
+	{
+		if (item)
+			stats->hits++;
+		else
+			stats->misses++;
+	}
 	if (item)
 	{
 		/* LRU the block. This also serves to ensure that any item
@@ -394,6 +439,7 @@ fz_remove_item(fz_context *ctx, fz_store_drop_fn *drop, void *key, fz_store_type
 {
 	fz_item *item;
 	fz_store *store = ctx->store;
+	fz_store_stats *stats;
 	int dodrop;
 	fz_store_hash hash = { NULL };
 	int use_hash = 0;
@@ -434,6 +480,14 @@ fz_remove_item(fz_context *ctx, fz_store_drop_fn *drop, void *key, fz_store_type
 				item->prev->next = item->next;
 			else
 				store->head = item->next;
+			/* Only items in the list count towards the size. */
+			store->size -= item->size;
+			stats = kind_stats(store, item->val->drop);
+			if (stats)
+			{
+				stats->count--;
+				stats->size -= item->size;
+			}
 		}
 		dodrop = (item->val->refs > 0 && --item->val->refs == 0);
 		fz_unlock(ctx, FZ_LOCK_ALLOC);
@@ -655,3 +709,86 @@ fz_shrink_store(fz_context *ctx, unsigned int percent)
 
 	return success;
 }
+
+void
+fz_set_store_size(fz_context *ctx, unsigned int max)
+{
+	fz_store *store;
+
+	if (ctx == NULL)
+		return;
+	store = ctx->store;
+	if (store == NULL)
+		return;
+
+	fz_lock(ctx, FZ_LOCK_ALLOC);
+	store->max = max;
+	if (max != FZ_STORE_UNLIMITED && store->size > max)
+		scavenge(ctx, store->size - max);
+	fz_unlock(ctx, FZ_LOCK_ALLOC);
+}
+
+unsigned int
+fz_store_size(fz_context *ctx)
+{
+	unsigned int max;
+
+	if (ctx == NULL || ctx->store == NULL)
+		return 0;
+
+	fz_lock(ctx, FZ_LOCK_ALLOC);
+	max = ctx->store->max;
+	fz_unlock(ctx, FZ_LOCK_ALLOC);
+	return max;
+}
+
+unsigned int
+fz_store_usage(fz_context *ctx)
+{
+	unsigned int size;
+
+	if (ctx == NULL || ctx->store == NULL)
+		return 0;
+
+	fz_lock(ctx, FZ_LOCK_ALLOC);
+	size = ctx->store->size;
+	fz_unlock(ctx, FZ_LOCK_ALLOC);
+	return size;
+}
+
+int
+fz_store_statistics(fz_context *ctx, fz_store_stats *stats, int max)
+{
+	fz_store *store;
+	int n;
+
+	if (ctx == NULL || ctx->store == NULL)
+		return 0;
+	store = ctx->store;
+
+	fz_lock(ctx, FZ_LOCK_ALLOC);
+	n = store->num_stats < max ? store->num_stats : max;
+	memcpy(stats, store->stats, n * sizeof *stats);
+	fz_unlock(ctx, FZ_LOCK_ALLOC);
+	return n;
+}
+
+void
+fz_reset_store_statistics(fz_context *ctx)
+{
+	fz_store *store;
+	int i;
+
+	if (ctx == NULL || ctx->store == NULL)
+		return;
+	store = ctx->store;
+
+	fz_lock(ctx, FZ_LOCK_ALLOC);
+	for (i = 0; i < store->num_stats; i++)
+	{
+		store->stats[i].hits = 0;
+		store->stats[i].misses = 0;
+		store->stats[i].evictions = 0;
+	}
+	fz_unlock(ctx, FZ_LOCK_ALLOC);
+}